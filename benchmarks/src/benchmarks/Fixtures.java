@@ -0,0 +1,84 @@
+package benchmarks;
+
+import _main.MeshComponent;
+import _main.OtherComponent;
+import _main.TestComponent;
+import ecs.ECSManager;
+import ecs.Entity;
+import ecs.Transformation;
+import ecs.components.Component;
+import ecs.systems.ComponentSorter;
+import ecs.systems.ECSystem;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shared setup for benchmarks, builds ECSManagers filled with the example components from _main
+ */
+public final class Fixtures {
+    /**Component mixes selectable through a benchmark's mix parameter**/
+    public static final String MIX_TEST = "test";  //TestComponent only, heaviest to serialise
+    public static final String MIX_MESH = "mesh";  //MeshComponent and OtherComponent, light components
+    public static final String MIX_FULL = "full";  //Every example component
+
+    private Fixtures(){}
+
+    /**
+     * Create an ECSManager with an IterateSystem and a number of entities
+     * @param entities amount of entities to create
+     * @param mix component mix of each entity
+     * @return manager with every entity stored
+     */
+    public static ECSManager createManager(int entities, String mix){
+        ECSManager manager = new ECSManager();
+        manager.addSystem(new IterateSystem());
+
+        for(int i = 0; i < entities; i++)
+            manager.createEntity(new Transformation(), components(mix, i));
+
+        //Structural changes are only played back during an update
+        manager.update(0);
+        return manager;
+    }
+
+    /**
+     * @param mix component mix
+     * @param i entity number, used to vary component data
+     * @return fresh components of the mix
+     */
+    public static Component[] components(String mix, int i){
+        switch(mix){
+            case MIX_TEST: return new Component[]{ new TestComponent() };
+            case MIX_MESH: return new Component[]{ new MeshComponent("mesh_" + i), new OtherComponent() };
+            case MIX_FULL: return new Component[]{ new TestComponent(), new MeshComponent("mesh_" + i), new OtherComponent() };
+            default: throw new IllegalArgumentException("Unknown component mix: " + mix);
+        }
+    }
+
+    /**
+     * System reading every component of its entities, so updates measure iteration and not just scheduling
+     */
+    public static class IterateSystem extends ECSystem {
+        private final LongAdder visited = new LongAdder();  //Kept so the loop can't be optimised away
+
+        public IterateSystem(){
+            super(
+                    new ComponentSorter(false, TestComponent.class, MeshComponent.class, OtherComponent.class)
+            );
+            reads(TestComponent.class, MeshComponent.class, OtherComponent.class);
+        }
+
+        @Override
+        public void update(float interval){
+            forEachParallel(e -> {
+                int found = 0;
+                if(e.get(TestComponent.class)  != null) found++;
+                if(e.get(MeshComponent.class)  != null) found++;
+                if(e.get(OtherComponent.class) != null) found++;
+                visited.add(found);
+            });
+        }
+
+        public long getVisited(){ return visited.sum(); }
+    }
+}
@@ -0,0 +1,69 @@
+package benchmarks.ecs;
+
+import _main.MeshComponent;
+import _main.OtherComponent;
+import _main.TestComponent;
+import benchmarks.Fixtures;
+import ecs.ECSManager;
+import ecs.Entity;
+import ecs.components.Component;
+import ecs.systems.ComponentSorter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of sorting entities into systems, both on the sorter directly and through component add/remove churn
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ComponentSorterBenchmark {
+    @Param({ "1000", "10000", "100000" })
+    public int entities;
+
+    private ECSManager      manager;
+    private ComponentSorter sorter;
+    private Entity[]        stored;
+    private Component[]     meshes;     //MeshComponent of each stored entity, re-added after being removed
+
+    @Setup(Level.Trial)
+    public void setup(){
+        manager = Fixtures.createManager(entities, Fixtures.MIX_FULL);
+
+        sorter = new ComponentSorter(true, TestComponent.class, MeshComponent.class, OtherComponent.class);
+        sorter.bind(manager.getComponents());
+
+        stored = manager.getEntities().toArray(new Entity[0]);
+        meshes = new Component[stored.length];
+        for(int i = 0; i < stored.length; i++) meshes[i] = stored[i].get(MeshComponent.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){ manager.destroy(); }
+
+    /**
+     * Every entity is considered and then removed again, the sorter ends each invocation empty
+     */
+    @Benchmark
+    public int considerRemove(){
+        for(Entity e : stored) sorter.consider(e);
+        int size = sorter.getEntities().size();
+        for(Entity e : stored) sorter.remove(e);
+        return size;
+    }
+
+    /**
+     * Every entity loses and regains a component, each change moves it between archetypes and is validated by every system
+     */
+    @Benchmark
+    public void validateChurn(){
+        for(int i = 0; i < stored.length; i++) manager.removeComponent(stored[i], meshes[i]);
+        manager.update(0);
+        for(int i = 0; i < stored.length; i++) manager.addComponent(stored[i], meshes[i]);
+        manager.update(0);
+    }
+}
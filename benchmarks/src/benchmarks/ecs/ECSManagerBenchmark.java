@@ -0,0 +1,35 @@
+package benchmarks.ecs;
+
+import benchmarks.Fixtures;
+import ecs.ECSManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frame throughput of ECSManager.update across entity counts and component mixes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ECSManagerBenchmark {
+    @Param({ "1000", "10000", "100000" })
+    public int entities;
+
+    @Param({ Fixtures.MIX_TEST, Fixtures.MIX_MESH, Fixtures.MIX_FULL })
+    public String mix;
+
+    private ECSManager manager;
+
+    @Setup(Level.Trial)
+    public void setup(){ manager = Fixtures.createManager(entities, mix); }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){ manager.destroy(); }
+
+    @Benchmark
+    public void update(){ manager.update(1f / 60f); }
+}
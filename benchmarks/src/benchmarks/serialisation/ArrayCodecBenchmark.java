@@ -0,0 +1,48 @@
+package benchmarks.serialisation;
+
+import org.openjdk.jmh.annotations.*;
+import utils.files.readers.TSReader;
+import utils.files.writers.TSWriter;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding of large primitive arrays, the shape of mesh and navmesh component data
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArrayCodecBenchmark {
+    @Param({ "1000", "1000000" })
+    public int length;
+
+    private float[]    floats;
+    private byte[]     data;
+    private ByteBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        Random random = new Random(0);
+        floats = new float[length];
+        for(int i = 0; i < length; i++) floats[i] = random.nextFloat();
+
+        data   = new byte[length * Float.BYTES];
+        buffer = ByteBuffer.allocateDirect(data.length);
+        TSWriter.writeBytes(data, 0, floats);
+        buffer.put(data).clear();
+    }
+
+    @Benchmark
+    public int writeFloats(){ return TSWriter.writeBytes(data, 0, floats); }
+
+    @Benchmark
+    public float[] readFloats(){ return TSReader.readFloats(data, 0, length); }
+
+    @Benchmark
+    public float[] readFloatsBuffer(){ return TSReader.readFloats(buffer, 0, length); }
+}
@@ -0,0 +1,165 @@
+package benchmarks.serialisation;
+
+import benchmarks.Fixtures;
+import ecs.ECSManager;
+import org.openjdk.jmh.annotations.*;
+import utils.Loader;
+import utils.files.readers.TSReader;
+import utils.files.writers.TSWriter;
+import utils.serialisation.compression.DeflateCodec;
+import utils.serialisation.dataObjects.TSDatabase;
+import utils.serialisation.dataObjects.TSField;
+import utils.serialisation.dataObjects.TSIndex;
+import utils.serialisation.dataObjects.TSObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every stage of saving and loading an ECSManager, from building the database to parsing it back from bytes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ThunderStormBenchmark {
+    @Param({ "100", "1000", "10000", "100000" })
+    public int entities;
+
+    @Param({ Fixtures.MIX_TEST, Fixtures.MIX_MESH, Fixtures.MIX_FULL })
+    public String mix;
+
+    private Loader     loader;
+    private ECSManager manager;
+    private ECSManager target;  //Reset and loaded into by loadECSManagerFromDatabase
+    private TSDatabase database;
+    private byte[]     data;
+    private byte[]     compressed;  //Same database written with DeflateCodec
+    private String     file;    //Database written during setup, read by open
+    private String     output;  //Overwritten by every writeDatabaseToFile invocation
+    private long       middle;  //ID of the entity in the middle of the file
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        loader   = new Loader();
+        manager  = Fixtures.createManager(entities, mix);
+        database = loader.saveECSManagerToDatabase(manager);
+        target   = Fixtures.createManager(0, mix);
+
+        file   = File.createTempFile("benchmark", ".tsd").getAbsolutePath();
+        output = File.createTempFile("benchmark", ".tsd").getAbsolutePath();
+
+        TSWriter writer = new TSWriter();
+        writer.createFile(file);
+        writer.writeDatabaseToFile(database, true);
+        writer.close();
+
+        middle = TSIndex.getID(database.getObjects().get(entities / 2));
+
+        data = loader.getByteData(file);
+
+        writer.createFile(output, new DeflateCodec());
+        writer.writeDatabaseToFile(database, true);
+        writer.close();
+        compressed = loader.getByteData(output);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        manager.destroy();
+        target.destroy();
+        new File(file).delete();
+        new File(output).delete();
+    }
+
+    @Benchmark
+    public TSDatabase saveECSManagerToDatabase(){ return loader.saveECSManagerToDatabase(manager); }
+
+    @Benchmark
+    public TSDatabase saveECSManagerToDatabaseParallel(){ return loader.saveECSManagerToDatabase(manager, ForkJoinPool.commonPool()); }
+
+    @Benchmark
+    public ECSManager loadECSManagerFromDatabase(){
+        loader.loadECSManagerFromDatabase(target, database);
+        return target;
+    }
+
+    @Benchmark
+    public void writeDatabaseToFile(){
+        TSWriter writer = new TSWriter();
+        writer.createFile(output);
+        writer.writeDatabaseToFile(database);
+        writer.close();
+    }
+
+    @Benchmark
+    public void writeDatabaseToFileCompressed(){
+        TSWriter writer = new TSWriter();
+        writer.createFile(output, new DeflateCodec());
+        writer.writeDatabaseToFile(database);
+        writer.close();
+    }
+
+    @Benchmark
+    public byte[] open(){
+        TSReader reader = new TSReader();
+        reader.open(loader, file);
+        byte[] read = reader.getData();
+        reader.close();
+        return read;
+    }
+
+    @Benchmark
+    public TSDatabase deserialise(){ return TSDatabase.deserialise(data); }
+
+    /**
+     * Decode top level objects concurrently on the common pool
+     */
+    @Benchmark
+    public TSDatabase deserialiseParallel(){ return TSDatabase.deserialise(ByteBuffer.wrap(data), ForkJoinPool.commonPool()); }
+
+    /**
+     * Decompress blocks in parallel, then deserialise
+     */
+    @Benchmark
+    public TSDatabase deserialiseCompressed(){ return TSDatabase.deserialise(compressed); }
+
+    @Benchmark
+    public TSDatabase deserialiseMapped(){
+        TSReader reader = new TSReader();
+        reader.map(loader, file);
+        TSDatabase loaded = TSDatabase.deserialise(reader.getBuffer());
+        reader.close();
+        return loaded;
+    }
+
+    /**
+     * Lazily load a mapped database and decode a single entity out of the middle of it
+     */
+    @Benchmark
+    public TSField deserialiseLazy(){
+        TSReader reader = new TSReader();
+        reader.map(loader, file);
+        TSDatabase loaded = TSDatabase.deserialise(reader.getBuffer(), true);
+        TSField id = loaded.getObjects().get(entities / 2).findField("ID");
+        reader.close();
+        return id;
+    }
+
+    /**
+     * Read a single entity out of the middle of a mapped file through its index
+     */
+    @Benchmark
+    public TSObject readIndexed(){
+        TSReader reader = new TSReader();
+        reader.map(loader, file);
+        TSObject object = reader.readObject(middle, false);
+        reader.close();
+        return object;
+    }
+}
@@ -0,0 +1,292 @@
+package processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates a GeneratedSerialiser for every component annotated with GenerateSerialiser
+ * Generated serialisers read and write the component's fields directly, so saving and loading them needs no reflection
+ * The engine's classes are referred to by name, so this module doesn't depend on the engine
+ */
+@SupportedAnnotationTypes(SerialiserProcessor.ANNOTATION)
+public class SerialiserProcessor extends AbstractProcessor {
+    static final String ANNOTATION = "ecs.components.GenerateSerialiser";
+    static final String COMPONENT  = "ecs.components.Component";
+    static final String SERIALIZER = "ecs.components.ComponentSerializer";
+    static final String SUFFIX     = "Serialiser";
+
+    /**
+     * TSDataType of a stored Java type and the names of the methods used to store and read it
+     */
+    private static final class Type {
+        final String dataType;      //TSDataType constant
+        final String factory;       //TSField and TSArray factory
+        final String reader;        //TSReader method reading a single value
+        final String getter;        //TSArray getter of the array data
+
+        Type(String dataType, String factory, String reader, String getter){
+            this.dataType = dataType;
+            this.factory  = factory;
+            this.reader   = reader;
+            this.getter   = getter;
+        }
+    }
+
+    private static final Map<String, Type> TYPES = new HashMap<>();
+    static {
+        type("BYTE",       "Byte",       "readByte",       "getByteData",       "byte",    "java.lang.Byte");
+        type("SHORT",      "Short",      "readShort",      "getShortData",      "short",   "java.lang.Short");
+        type("INTEGER",    "Integer",    "readInt",        "getIntData",        "int",     "java.lang.Integer");
+        type("LONG",       "Long",       "readLong",       "getLongData",       "long",    "java.lang.Long");
+        type("FLOAT",      "Float",      "readFloat",      "getFloatData",      "float",   "java.lang.Float");
+        type("DOUBLE",     "Double",     "readDouble",     "getDoubleData",     "double",  "java.lang.Double");
+        type("BOOLEAN",    "Boolean",    "readBoolean",    "getBooleanData",    "boolean", "java.lang.Boolean");
+        type("CHAR",       "Char",       "readChar",       "getCharData",       "char",    "java.lang.Character");
+        type("STRING",     "String",     "readString",     "getStringData",     "java.lang.String");
+        type("VECTOR2",    "Vector2",    "readVector2",    "getVector2Data",    "utils.maths.vectors.Vector2");
+        type("VECTOR3",    "Vector3",    "readVector3",    "getVector3Data",    "utils.maths.vectors.Vector3");
+        type("VECTOR4",    "Vector4",    "readVector4",    "getVector4Data",    "utils.maths.vectors.Vector4");
+        type("QUATERNION", "Quaternion", "readQuaternion", "getQuaternionData", "utils.maths.matrices.Quaternion");
+        type("MATRIX2",    "Matrix2",    "readMatrix2",    "getMatrix2Data",    "utils.maths.matrices.Matrix2");
+        type("MATRIX3",    "Matrix3",    "readMatrix3",    "getMatrix3Data",    "utils.maths.matrices.Matrix3");
+        type("MATRIX4",    "Matrix4",    "readMatrix4",    "getMatrix4Data",    "utils.maths.matrices.Matrix4");
+    }
+
+    private static void type(String dataType, String factory, String reader, String getter, String... javaTypes){
+        Type type = new Type(dataType, factory, reader, getter);
+        for(String javaType : javaTypes) TYPES.put(javaType, type);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion(){ return SourceVersion.latestSupported(); }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round){
+        TypeElement annotation = processingEnv.getElementUtils().getTypeElement(ANNOTATION);
+        if(annotation == null) return false;
+
+        for(Element element : round.getElementsAnnotatedWith(annotation)){
+            if(!validate(element)) continue;
+
+            try{
+                generate((TypeElement)element);
+            }catch(IOException error){
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Couldn't generate serialiser: " + error.getMessage(), element);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @param element annotated element
+     * @return True if a serialiser can be generated for the element, errors are reported otherwise
+     */
+    private boolean validate(Element element){
+        TypeElement component = processingEnv.getElementUtils().getTypeElement(COMPONENT);
+
+        if(element.getKind() != ElementKind.CLASS || element.getModifiers().contains(Modifier.ABSTRACT))
+            return error("Serialisers can only be generated for concrete classes", element);
+        if(component == null || !processingEnv.getTypeUtils().isSubtype(element.asType(), component.asType()))
+            return error("Serialisers can only be generated for subclasses of " + COMPONENT, element);
+
+        //Generated serialiser has to reach the class and its fields from the same package
+        for(Element e = element; e.getKind() == ElementKind.CLASS; e = e.getEnclosingElement()){
+            if(e.getModifiers().contains(Modifier.PRIVATE))
+                return error("Serialisers can't be generated for private classes", e);
+            if(((TypeElement)e).getNestingKind() == NestingKind.MEMBER && !e.getModifiers().contains(Modifier.STATIC))
+                return error("Serialisers can't be generated for inner classes, make the class static", e);
+        }
+
+        boolean valid = true;
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(element);
+        for(VariableElement field : fields((TypeElement)element)){
+            //Inherited fields are stored too, so they're reported on the annotated class as well as where they're declared
+            Element target = field.getEnclosingElement() == element ? field : element;
+            boolean samePackage = processingEnv.getElementUtils().getPackageOf(field).equals(packageElement);
+
+            if(field.getModifiers().contains(Modifier.PRIVATE) || field.getModifiers().contains(Modifier.FINAL))
+                valid = error("Fields of components with generated serialisers can't be private or final: " + field.getSimpleName(), target);
+            else if(!samePackage && !field.getModifiers().contains(Modifier.PUBLIC))
+                valid = error("Inherited fields from other packages have to be public: " + field.getSimpleName(), target);
+            else if(!isList(field.asType()) && type(field.asType()) == null)
+                valid = error("Fields of type " + field.asType() + " can't be stored: " + field.getSimpleName(), target);
+        }
+        return valid;
+    }
+
+    /**
+     * Write the serialiser of a component
+     * @param element component class
+     */
+    private void generate(TypeElement element) throws IOException {
+        String packageName = processingEnv.getElementUtils().getPackageOf(element).getQualifiedName().toString();
+        String component   = element.getQualifiedName().toString();
+        String name        = element.getSimpleName().toString();
+        for(Element e = element.getEnclosingElement(); e.getKind() == ElementKind.CLASS; e = e.getEnclosingElement())
+            name = e.getSimpleName() + "_" + name;
+        name += SUFFIX;
+
+        StringBuilder serialise   = new StringBuilder();
+        StringBuilder deserialise = new StringBuilder();
+        for(VariableElement field : fields(element)){
+            String     fieldName = field.getSimpleName().toString();
+            TypeMirror type     = field.asType();
+
+            if(isList(type)){
+                serialise  .append("        add(fields, utils.reflection.TSParser.parseValue(\"").append(fieldName).append("\", component.").append(fieldName).append("));\n");
+                deserialise.append("        array = object.findArray(\"").append(fieldName).append("\");\n")
+                           .append("        if(array != null) component.").append(fieldName).append(" = utils.reflection.TSParser.convertToList(array.getDataObject());\n");
+            }else if(type.getKind() == TypeKind.ARRAY){
+                Type stored = type(type);
+                serialise  .append("        if(component.").append(fieldName).append(" != null) fields.add(utils.serialisation.dataObjects.TSArray.").append(stored.factory)
+                           .append("(\"").append(fieldName).append("\", component.").append(fieldName).append("));\n");
+                deserialise.append("        array = object.findArray(\"").append(fieldName).append("\");\n")
+                           .append("        if(array != null && array.getDataType() == utils.serialisation.types.TSDataType.").append(stored.dataType)
+                           .append(") component.").append(fieldName).append(" = array.").append(stored.getter).append("();\n");
+            }else{
+                Type stored = type(type);
+                serialise  .append(type.getKind().isPrimitive() ? "        " : "        if(component." + fieldName + " != null) ")
+                           .append("fields.add(utils.serialisation.dataObjects.TSField.").append(stored.factory)
+                           .append("(\"").append(fieldName).append("\", component.").append(fieldName).append("));\n");
+                deserialise.append("        field = object.findField(\"").append(fieldName).append("\");\n")
+                           .append("        if(field != null && field.getDataType() == utils.serialisation.types.TSDataType.").append(stored.dataType)
+                           .append(") component.").append(fieldName).append(" = utils.files.readers.TSReader.").append(stored.reader).append("(field.getData(), 0);\n");
+            }
+        }
+
+        try(Writer writer = processingEnv.getFiler().createSourceFile(packageName.isEmpty() ? name : packageName + "." + name, element).openWriter()){
+            if(!packageName.isEmpty()) writer.write("package " + packageName + ";\n\n");
+            writer.write("/**\n" +
+                         " * Serialiser of " + component + ", generated by " + getClass().getName() + "\n" +
+                         " */\n" +
+                         "@javax.annotation.processing.Generated(\"" + getClass().getName() + "\")\n" +
+                         "public final class " + name + " implements ecs.components.GeneratedSerialiser<" + component + "> {\n" +
+                         "    @Override\n" +
+                         "    public java.util.List<utils.serialisation.dataObjects.TSBase> serialise(" + component + " component){\n" +
+                         "        java.util.List<utils.serialisation.dataObjects.TSBase> fields = new java.util.ArrayList<>();\n" +
+                         serialise +
+                         "        return fields;\n" +
+                         "    }\n" +
+                         "\n" +
+                         "    @Override\n" +
+                         "    @SuppressWarnings(\"unchecked\")\n" +
+                         "    public void deserialise(" + component + " component, utils.serialisation.dataObjects.TSObject object){\n" +
+                         "        utils.serialisation.dataObjects.TSField field;\n" +
+                         "        utils.serialisation.dataObjects.TSArray array;\n" +
+                         deserialise +
+                         "    }\n" +
+                         "\n" +
+                         "    private static void add(java.util.List<utils.serialisation.dataObjects.TSBase> fields, utils.serialisation.dataObjects.TSBase field){\n" +
+                         "        if(field != null) fields.add(field);\n" +
+                         "    }\n" +
+                         "}\n");
+        }
+    }
+
+    /**
+     * Fields are stored from the component class up to Component, a superclass that serialises itself stores its own
+     * fields so the walk stops there too. Fields hidden by a subclass field of the same name aren't stored
+     * @param element component class
+     * @return Stored fields of the class, the same fields ComponentCodec stores so both write the same data
+     */
+    private static List<VariableElement> fields(TypeElement element){
+        List<VariableElement> fields = new ArrayList<>();
+        Set<String>           names  = new HashSet<>();
+        for(TypeElement c = element; isStored(c, element); c = superclass(c)){
+            for(VariableElement f : ElementFilter.fieldsIn(c.getEnclosedElements()))
+                if(!f.getModifiers().contains(Modifier.STATIC) && names.add(f.getSimpleName().toString())) fields.add(f);
+        }
+        return fields;
+    }
+
+    /**
+     * @param c class in the hierarchy of the component
+     * @param element component class
+     * @return True if the fields declared by c are stored
+     */
+    private static boolean isStored(TypeElement c, TypeElement element){
+        if(c == null || c.getQualifiedName().contentEquals("java.lang.Object") || c.getQualifiedName().contentEquals(COMPONENT)) return false;
+        if(c == element) return true;
+
+        for(TypeMirror i : c.getInterfaces())
+            if(i.getKind() == TypeKind.DECLARED && ((TypeElement)((DeclaredType)i).asElement()).getQualifiedName().contentEquals(SERIALIZER))
+                return false;
+        return true;
+    }
+
+    /**
+     * @param c class
+     * @return Superclass of the class, null if it has none
+     */
+    private static TypeElement superclass(TypeElement c){
+        TypeMirror superclass = c.getSuperclass();
+        return superclass.getKind() == TypeKind.DECLARED ? (TypeElement)((DeclaredType)superclass).asElement() : null;
+    }
+
+    /**
+     * @param type field type
+     * @return Stored type of the field, or of its elements if it's an array, null if it can't be stored
+     */
+    private Type type(TypeMirror type){
+        if(type.getKind() == TypeKind.ARRAY){
+            TypeMirror component = ((ArrayType)type).getComponentType();
+            Type stored = type(component);
+
+            //Arrays are only stored directly if their elements are exactly the stored type, int[] but not Integer[]
+            if(stored == null || (!component.getKind().isPrimitive() && isBoxed(component))) return null;
+            return stored;
+        }
+        return TYPES.get(processingEnv.getTypeUtils().erasure(type).toString());
+    }
+
+    /**
+     * @param type field type
+     * @return True if the type is a List, stored through TSParser
+     */
+    private boolean isList(TypeMirror type){
+        return type.getKind() == TypeKind.DECLARED &&
+               processingEnv.getTypeUtils().erasure(type).toString().equals("java.util.List");
+    }
+
+    /**
+     * @param type declared type
+     * @return True if the type is a boxed primitive
+     */
+    private boolean isBoxed(TypeMirror type){
+        try{
+            processingEnv.getTypeUtils().unboxedType(type);
+            return true;
+        }catch(IllegalArgumentException error){
+            return false;
+        }
+    }
+
+    private boolean error(String message, Element element){
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+        return false;
+    }
+}
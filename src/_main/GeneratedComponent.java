@@ -0,0 +1,37 @@
+package _main;
+
+import ecs.components.Component;
+import ecs.components.GenerateSerialiser;
+import utils.maths.vectors.Vector3;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Example of a component saved through a serialiser generated at build time, see GenerateSerialiser
+ * Fields are package-private so the generated GeneratedComponentSerialiser can reach them
+ */
+@GenerateSerialiser
+public class GeneratedComponent extends Component {
+    int health = 100;
+    float speed = 2.5f;
+    boolean visible = true;
+    String name = "generated";
+    Vector3 velocity = new Vector3(0, 1, 0);
+    float[] weights = { 0.25f, 0.75f };
+    List<String> tags = new ArrayList<>();
+
+    public GeneratedComponent(){
+        tags.add("example");
+    }
+
+    /**Getters**/
+
+    public int getHealth(){ return health; }
+    public float getSpeed(){ return speed; }
+    public boolean isVisible(){ return visible; }
+    public String getName(){ return name; }
+    public Vector3 getVelocity(){ return velocity; }
+    public float[] getWeights(){ return weights; }
+    public List<String> getTags(){ return tags; }
+}
@@ -0,0 +1,99 @@
+package ecs;
+
+import ecs.components.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class Archetype {
+    private final ArchetypeStorage storage;
+
+    private final Signature                    signature;       //Component IDs this archetype holds, never modified
+    private final int[]                        componentIDs;    //Component IDs sorted ascending, index matches column
+    private final Class<? extends Component>[] types;           //Component classes, index matches column
+
+    private final List<Chunk> chunks = new ArrayList<>();
+    private int size;                                           //Amount of entities across all chunks
+
+    Archetype(ArchetypeStorage storage, Signature signature, int[] componentIDs, Class<? extends Component>[] types){
+        this.storage      = storage;
+        this.signature    = signature;
+        this.componentIDs = componentIDs;
+        this.types        = types;
+    }
+
+    /**
+     * Reserve a row for an entity, creating a new chunk if the last one is full
+     * Component columns of the reserved row are left empty for the caller to fill
+     * @param e entity to store
+     */
+    void allocate(Entity e){
+        Chunk chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+        if(chunk == null || chunk.isFull()){
+            chunk = new Chunk(types);
+            chunks.add(chunk);
+        }
+
+        int row = chunk.count++;
+        chunk.entities[row] = e;
+
+        e.archetype = this;
+        e.chunk     = chunk;
+        e.row       = row;
+        size++;
+    }
+
+    /**
+     * Remove a row by moving the last entity of this archetype into it
+     * Keeps every chunk but the last one full
+     * @param chunk chunk the row is in
+     * @param row row to remove
+     */
+    void release(Chunk chunk, int row){
+        Chunk last = chunks.get(chunks.size() - 1);
+        int lastRow = last.count - 1;
+
+        if(last != chunk || lastRow != row){
+            Chunk.copyRow(last, lastRow, chunk, row);
+
+            Entity moved = chunk.entities[row];
+            moved.chunk = chunk;
+            moved.row   = row;
+        }
+
+        last.clearRow(lastRow);
+        if(--last.count == 0) chunks.remove(chunks.size() - 1);
+        size--;
+    }
+
+    /**
+     * @param componentClass component class
+     * @return column of component class or -1 if this archetype doesn't hold it
+     */
+    public int indexOf(Class<? extends Component> componentClass){
+        for(int i = 0; i < types.length; i++)
+            if(types[i] == componentClass) return i;
+        return -1;
+    }
+
+    /**
+     * @param componentID component ID assigned by the ECSManager
+     * @return column of component ID or -1 if this archetype doesn't hold it
+     */
+    public int columnOf(int componentID){
+        int column = Arrays.binarySearch(componentIDs, componentID);
+        return column < 0 ? -1 : column;
+    }
+
+    public boolean contains(Class<? extends Component> componentClass){ return indexOf(componentClass) >= 0; }
+
+    /**Getters**/
+
+    public ArchetypeStorage getStorage(){ return storage; }
+    public Signature getSignature(){ return signature; }
+    public int[] getComponentIDs(){ return componentIDs; }
+    public Class<? extends Component>[] getTypes(){ return types; }
+    public List<Chunk> getChunks(){ return chunks; }
+    public int getSize(){ return size; }
+}
@@ -0,0 +1,280 @@
+package ecs;
+
+import ecs.components.Component;
+import utils.logging.LogLevel;
+import utils.logging.Logger;
+
+import java.util.*;
+
+public class ArchetypeStorage {
+    private final List<Class<? extends Component>> components;   //Component classes indexed by component ID
+
+    private final Map<Signature, Archetype> archetypes    = new HashMap<>();
+    private final List<Archetype>           archetypeList = new ArrayList<>();
+
+    /**Entity slots**/
+    private Entity[] slots       = new Entity[16];  //Stored entity of each index, null if free
+    private int[]    generations = new int[16];     //Current generation of each index, bumped when the slot is freed
+    private int[]    freeIndices = new int[16];     //Released indices waiting to be reused, may hold indices claimed by a load
+    private int      freeCount;
+    private int      nextIndex;                     //Next never used index
+
+    private static final int MAX_SKIP = 1 << 16;    //Indices a loaded ID may always skip past nextIndex
+
+    /**
+     * @param components Component classes used by the ECSManager, a component's ID is its index in this list
+     */
+    public ArchetypeStorage(List<Class<? extends Component>> components){
+        this.components = components;
+        Arrays.fill(generations, 1);
+    }
+
+    /**
+     * Move an entity's pending components into the archetype matching its component set
+     * Components without a valid ID (not in use by the ECSManager) are dropped
+     * @param e entity to store
+     * @param keepID True to claim the slot the entity's existing ID points at (loading), false to give it a new ID
+     */
+    void attach(Entity e, boolean keepID){
+        if(e.archetype != null) return;
+
+        if(keepID && !claim(e)){
+            Logger.log(LogLevel.WARNING, getClass().getSimpleName(), "Entity ID [" + e.getID() + "] can't be kept, assigning a new ID");
+            keepID = false;
+        }
+        if(!keepID) assign(e);
+
+        Signature signature = new Signature();
+        for(Component c : e.pending.values())
+            if(c.getID() >= 0) signature.set((int)c.getID());
+
+        Archetype archetype = getArchetype(signature);
+        archetype.allocate(e);
+        for(Component c : e.pending.values())
+            if(c.getID() >= 0) e.chunk.set(archetype.columnOf((int)c.getID()), e.row, c);
+
+        e.pending.clear();
+    }
+
+    /**
+     * Take an entity out of storage, its components are kept on the entity so it can still be read or re-added
+     * The entity's index is released, so it has to be removed from every EntitySet first
+     * @param e entity to remove
+     */
+    void detach(Entity e){
+        Archetype archetype = e.archetype;
+        if(archetype == null) return;
+
+        Class<? extends Component>[] types = archetype.getTypes();
+        for(int i = 0; i < types.length; i++)
+            e.pending.put(types[i], e.chunk.get(i, e.row));
+
+        archetype.release(e.chunk, e.row);
+        e.archetype = null;
+        e.chunk     = null;
+        e.row       = -1;
+
+        release(e);
+    }
+
+    /**Entity slots**/
+
+    /**
+     * Give an entity a free slot and a new ID made of the slot index and its generation
+     * @param e entity to store
+     */
+    private void assign(Entity e){
+        int index = -1;
+        while(freeCount > 0 && index == -1){
+            index = freeIndices[--freeCount];
+            if(slots[index] != null) index = -1;    //Slot was claimed by a loaded entity since being freed
+        }
+        if(index == -1) index = grow(nextIndex);
+
+        slots[index] = e;
+        e.index = index;
+        e.setID(Entity.handle(index, generations[index]));
+    }
+
+    /**
+     * Put an entity into the slot its ID points at, keeping the ID's generation
+     * IDs saved before generations were stored have generation 0 and are moved to generation 1, so an ID of 0 still
+     * never belongs to a stored entity
+     * @param e entity to store
+     * @return False if the slot is already in use or too far past the used indices to claim
+     */
+    private boolean claim(Entity e){
+        int index = Entity.index(e.getID());
+        if(index < 0) return false;
+        if(index < nextIndex && slots[index] != null) return false;
+
+        if(index >= nextIndex){
+            //Every skipped index becomes free, so a single bad ID mustn't skip more than the storage already holds
+            if(index - nextIndex > Math.max(MAX_SKIP, nextIndex)){
+                Logger.log(LogLevel.WARNING, getClass().getSimpleName(), "Entity ID [" + e.getID() + "] is too far past the used indices");
+                return false;
+            }
+
+            int skipped = nextIndex;
+            grow(index);
+            for(int i = skipped; i < index; i++) pushFree(i);
+        }
+
+        int generation = Entity.generation(e.getID());
+        if(generation == 0){
+            generation = 1;
+            e.setID(Entity.handle(index, generation));
+        }
+
+        slots[index] = e;
+        generations[index] = generation;
+        e.index = index;
+        return true;
+    }
+
+    /**
+     * Free an entity's slot, handles to the old generation stop being valid
+     * @param e entity to release
+     */
+    private void release(Entity e){
+        int index = e.index;
+        slots[index] = null;
+        if(++generations[index] == 0) generations[index] = 1;
+
+        pushFree(index);
+        e.index = -1;
+    }
+
+    private void pushFree(int index){
+        if(freeCount == freeIndices.length) freeIndices = Arrays.copyOf(freeIndices, freeCount * 2);
+        freeIndices[freeCount++] = index;
+    }
+
+    /**
+     * Make sure slot arrays reach an index and move nextIndex past it
+     * @param index index to reach
+     * @return index
+     */
+    private int grow(int index){
+        if(index >= slots.length){
+            int length = Math.max(index + 1, slots.length * 2);
+            int old = generations.length;
+
+            slots       = Arrays.copyOf(slots      , length);
+            generations = Arrays.copyOf(generations, length);
+            Arrays.fill(generations, old, length, 1);
+        }
+        nextIndex = Math.max(nextIndex, index + 1);
+        return index;
+    }
+
+    /**
+     * @param id entity ID
+     * @return Stored entity with the ID, null if the ID is stale or unknown
+     */
+    public Entity getEntity(long id){
+        int index = Entity.index(id);
+        if(index < 0 || index >= nextIndex) return null;
+
+        Entity e = slots[index];
+        return e != null && e.getID() == id ? e : null;
+    }
+
+    /**
+     * @param id entity ID
+     * @return True if the ID belongs to an entity that is currently stored
+     */
+    public boolean isAlive(long id){ return getEntity(id) != null; }
+
+    /**
+     * Add components to an entity, moving it to a new archetype if its component set changes
+     * Components replace any existing component of the same class
+     * @param e entity to add components to
+     * @param components components to add
+     */
+    void add(Entity e, Component... components){
+        if(e.archetype == null){
+            for(Component c : components) e.pending.put(c.getClass(), c);
+            return;
+        }
+
+        Signature signature = new Signature(e.archetype.getSignature());
+        for(Component c : components)
+            if(c.getID() >= 0) signature.set((int)c.getID());
+
+        if(!signature.equals(e.archetype.getSignature()))
+            move(e, getArchetype(signature));
+
+        for(Component c : components)
+            if(c.getID() >= 0) e.chunk.set(e.archetype.columnOf((int)c.getID()), e.row, c);
+    }
+
+    /**
+     * Remove component classes from an entity, moving it to a new archetype if its component set changes
+     * @param e entity to remove components from
+     * @param components component classes to remove
+     */
+    @SafeVarargs
+    final void remove(Entity e, Class<? extends Component>... components){
+        if(e.archetype == null){
+            for(Class<? extends Component> c : components) e.pending.remove(c);
+            return;
+        }
+
+        Signature signature = new Signature(e.archetype.getSignature());
+        for(Class<? extends Component> c : components){
+            int column = e.archetype.indexOf(c);
+            if(column >= 0) signature.clear(e.archetype.getComponentIDs()[column]);
+        }
+
+        if(!signature.equals(e.archetype.getSignature()))
+            move(e, getArchetype(signature));
+    }
+
+    /**
+     * Move an entity between archetypes, copying over every component both archetypes share
+     * @param e entity to move
+     * @param to destination archetype
+     */
+    private void move(Entity e, Archetype to){
+        Archetype from = e.archetype;
+        Chunk fromChunk = e.chunk;
+        int fromRow = e.row;
+
+        to.allocate(e);
+
+        int[] ids = to.getComponentIDs();
+        for(int i = 0; i < ids.length; i++){
+            int column = from.columnOf(ids[i]);
+            if(column >= 0) e.chunk.set(i, e.row, fromChunk.get(column, fromRow));
+        }
+
+        from.release(fromChunk, fromRow);
+    }
+
+    /**
+     * Find the archetype for a component set, creating it if it doesn't exist yet
+     * @param signature component IDs of the archetype
+     * @return archetype
+     */
+    @SuppressWarnings("unchecked")
+    private Archetype getArchetype(Signature signature){
+        Archetype archetype = archetypes.get(signature);
+        if(archetype != null) return archetype;
+
+        int[] ids = signature.toArray();
+        Class<? extends Component>[] types = (Class<? extends Component>[])new Class<?>[ids.length];
+        for(int i = 0; i < ids.length; i++)
+            types[i] = components.get(ids[i]);
+
+        archetype = new Archetype(this, new Signature(signature), ids, types);
+        archetypes.put(archetype.getSignature(), archetype);
+        archetypeList.add(archetype);
+        return archetype;
+    }
+
+    /**Getters**/
+
+    public List<Archetype> getArchetypes(){ return archetypeList; }
+    public int getCapacity(){ return nextIndex; }
+}
@@ -0,0 +1,110 @@
+package ecs;
+
+import ecs.components.ColumnComponent;
+import ecs.components.Columns;
+import ecs.components.Component;
+
+import java.lang.reflect.Array;
+
+public class Chunk {
+    public static final int CAPACITY = 256;     //Amount of entities a single chunk can hold
+
+    final Entity[]      entities;               //Entities stored in this chunk, indexed by row
+    final Component[][] columns;                //One dense array per component type of the owning archetype
+    int                 count;                  //Amount of rows currently in use
+
+    /**Primitive columns of ColumnComponents - [column][field][row], null for regular component columns**/
+    private final boolean[]   columnar;
+    private final float[][][] floats;
+    private final int[][][]   ints;
+    private final long[][][]  longs;
+
+    Chunk(Class<? extends Component>[] types){
+        this.entities = new Entity[CAPACITY];
+        this.columns  = new Component[types.length][];
+        this.columnar = new boolean[types.length];
+        this.floats   = new float[types.length][][];
+        this.ints     = new int  [types.length][][];
+        this.longs    = new long [types.length][][];
+
+        //Columns are created with their exact component type so systems can cast them to e.g. TestComponent[]
+        for(int i = 0; i < types.length; i++){
+            this.columns[i] = (Component[])Array.newInstance(types[i], CAPACITY);
+
+            if(ColumnComponent.class.isAssignableFrom(types[i])){
+                Columns layout = ColumnComponent.layout(types[i]);
+                this.columnar[i] = true;
+                this.floats[i]   = new float[layout.floats()][CAPACITY];
+                this.ints[i]     = new int  [layout.ints()  ][CAPACITY];
+                this.longs[i]    = new long [layout.longs() ][CAPACITY];
+            }
+        }
+    }
+
+    /**
+     * Copy a whole row of components from one chunk into another
+     * Both chunks have to belong to the same archetype
+     * @param src chunk to copy from
+     * @param srcRow row in source chunk
+     * @param dest chunk to copy into
+     * @param destRow row in destination chunk
+     */
+    static void copyRow(Chunk src, int srcRow, Chunk dest, int destRow){
+        for(int i = 0; i < src.columns.length; i++)
+            dest.set(i, destRow, src.columns[i][srcRow]);
+        dest.entities[destRow] = src.entities[srcRow];
+    }
+
+    /**
+     * Null out a row so the chunk doesn't keep removed components alive
+     * @param row row to clear
+     */
+    void clearRow(int row){
+        for(int i = 0; i < columns.length; i++){
+            if(columnar[i] && columns[i][row] != null) ((ColumnComponent)columns[i][row]).unbind(this, row);
+            columns[i][row] = null;
+        }
+        entities[row] = null;
+    }
+
+    boolean isFull(){ return count == CAPACITY; }
+
+    /**Getters**/
+
+    public int getCount(){ return count; }
+    public Entity getEntity(int row){ return entities[row]; }
+
+    /**
+     * Dense array of a single component type, only the first {@link #getCount()} values are in use
+     * @param column column index from {@link Archetype#indexOf(Class)}
+     * @return component array
+     */
+    public Component[] getColumn(int column){ return columns[column]; }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(int column, int row){ return (T)columns[column][row]; }
+
+    /**
+     * Primitive column of a ColumnComponent field, only the first {@link #getCount()} values are in use
+     * @param column column index from {@link Archetype#indexOf(Class)}
+     * @param field field index within the component's float fields
+     * @return float array indexed by row
+     */
+    public float[] getFloats(int column, int field){ return floats[column][field]; }
+    public int[]   getInts  (int column, int field){ return ints  [column][field]; }
+    public long[]  getLongs (int column, int field){ return longs [column][field]; }
+
+    /**Setters**/
+
+    /**
+     * Store a component in a row, ColumnComponents are bound to the row and any component they replace is unbound
+     */
+    void set(int column, int row, Component component){
+        if(columnar[column]){
+            Component old = columns[column][row];
+            if(old != null && old != component) ((ColumnComponent)old).unbind(this, row);
+            if(component != null) ((ColumnComponent)component).bind(this, column, row);
+        }
+        columns[column][row] = component;
+    }
+}
@@ -0,0 +1,139 @@
+package ecs;
+
+import ecs.components.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-thread queue of structural changes recorded while systems update
+ * Every command is stamped with the sort key of the recording thread, the ECSManager plays all buffers back
+ * ordered by sort key at the sync point, so the result doesn't depend on thread timing
+ * Commands with equal keys play back in the order they were recorded in across all buffers, not by which buffer
+ * happened to be created first
+ */
+public class CommandBuffer {
+    static final byte CREATE_ENTITY    = 0;     //Entity gets a new ID on playback
+    static final byte LOAD_ENTITY      = 1;     //Entity keeps its ID
+    static final byte REMOVE_ENTITY    = 2;
+    static final byte ADD_COMPONENT    = 3;
+    static final byte REMOVE_COMPONENT = 4;
+
+    /**Sort key of the current thread - [system + 1][position], 0 outside of a system update**/
+    private static final ThreadLocal<long[]> SORT_KEY = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final Thread     owner;          //Thread recording into the buffer
+    private final AtomicLong sequence;      //Recording order shared by every buffer of the ECSManager
+
+    private byte[]        ops        = new byte[64];
+    private long[]        keys       = new long[64];
+    private long[]        sequences  = new long[64];
+    private Entity[]      entities   = new Entity[64];
+    private Component[][] components = new Component[64][];
+    private int           count;
+
+    private int[] order = new int[0];   //Playback order, reused between frames
+    private int[] temp  = new int[0];   //Merge sort scratch, reused between frames
+
+    /**
+     * Create the buffer of the current thread
+     * @param sequence recording order shared by every buffer of the ECSManager
+     */
+    CommandBuffer(AtomicLong sequence){
+        this.owner    = Thread.currentThread();
+        this.sequence = sequence;
+    }
+
+    /**
+     * Record a command
+     * @param op command type
+     * @param e entity the command targets
+     * @param components components of add/remove component commands
+     */
+    void record(byte op, Entity e, Component[] components){
+        if(count == ops.length){
+            int length = count * 2;
+            this.ops        = Arrays.copyOf(this.ops       , length);
+            this.keys       = Arrays.copyOf(this.keys      , length);
+            this.sequences  = Arrays.copyOf(this.sequences , length);
+            this.entities   = Arrays.copyOf(this.entities  , length);
+            this.components = Arrays.copyOf(this.components, length);
+        }
+
+        this.ops       [count] = op;
+        this.keys      [count] = SORT_KEY.get()[0];
+        this.sequences [count] = sequence.getAndIncrement();
+        this.entities  [count] = e;
+        this.components[count] = components;
+        count++;
+    }
+
+    /**
+     * Work out the playback order, commands are already in order unless this thread recorded for several systems
+     */
+    void sort(){
+        if(order.length < count){
+            order = new int[ops.length];
+            temp  = new int[ops.length];
+        }
+
+        boolean sorted = true;
+        for(int i = 0; i < count; i++){
+            order[i] = i;
+            if(i > 0 && keys[i] < keys[i - 1]) sorted = false;
+        }
+
+        if(!sorted) mergeSort(0, count);
+    }
+
+    /**
+     * Stable merge sort of order[from, to) by sort key
+     */
+    private void mergeSort(int from, int to){
+        if(to - from < 2) return;
+
+        int mid = (from + to) >>> 1;
+        mergeSort(from, mid);
+        mergeSort(mid, to);
+
+        int a = from, b = mid, i = from;
+        while(a < mid && b < to) temp[i++] = keys[order[b]] < keys[order[a]] ? order[b++] : order[a++];
+        while(a < mid) temp[i++] = order[a++];
+        while(b < to)  temp[i++] = order[b++];
+        System.arraycopy(temp, from, order, from, to - from);
+    }
+
+    /**
+     * Drop all commands but keep the arrays for the next frame
+     */
+    void clear(){
+        Arrays.fill(entities  , 0, count, null);
+        Arrays.fill(components, 0, count, null);
+        count = 0;
+    }
+
+    /**Sort keys**/
+
+    /**
+     * Set the sort key of commands recorded on this thread
+     * @param system index of the updating system, -1 outside of a system update
+     * @param position position of the entity being processed within the system's update
+     */
+    public static void setSortKey(int system, int position){ SORT_KEY.get()[0] = ((long)(system + 1) << 32) | (position & 0xFFFFFFFFL); }
+    public static void setSortKey(long key){ SORT_KEY.get()[0] = key; }
+    public static long getSortKey(){ return SORT_KEY.get()[0]; }
+
+    /**
+     * @return True if the buffer is empty and its thread has finished, so it will never be recorded into again
+     */
+    boolean isAbandoned(){ return !owner.isAlive() && count == 0; }
+
+    /**Getters**/
+
+    int         getCount()          { return count;                }
+    long        getKey(int i)       { return keys[order[i]];       }
+    long        getSequence(int i)  { return sequences[order[i]];  }
+    byte        getOp(int i)        { return ops[order[i]];        }
+    Entity      getEntity(int i)    { return entities[order[i]];   }
+    Component[] getComponents(int i){ return components[order[i]]; }
+}
@@ -3,6 +3,7 @@ package ecs;
 import ecs.components.Component;
 import ecs.systems.ComponentSorter;
 import ecs.systems.ECSystem;
+import ecs.systems.SystemScheduler;
 import utils.reflection.ReflectionTools;
 import utils.logging.LogLevel;
 import utils.logging.Logger;
@@ -15,55 +16,114 @@ import utils.serialisation.dataObjects.TSObject;
 import java.lang.reflect.Field;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class ECSManager {
-    private long entityID;
-
     private final List<ECSystem> systems = new LinkedList<>();
+    private final SystemScheduler scheduler;
+
+    /**Commands**/
+    private final List<CommandBuffer> buffers = new ArrayList<>();     //Buffer of every live thread that recorded commands
+    private final AtomicLong sequence = new AtomicLong();               //Recording order across all buffers
+    private final ThreadLocal<CommandBuffer> commands = ThreadLocal.withInitial(() -> {
+        CommandBuffer buffer = new CommandBuffer(sequence);
+        synchronized(buffers){ buffers.add(buffer); }
+        return buffer;
+    });
+    private int[] cursors = new int[0];                                 //Playback position in each buffer
 
     /**Entities**/
-    private final HashMap<Entity, List<Component>> componentsToAdd = new HashMap<>();
-    private final HashMap<Entity, Component[]> componentsToRemove = new HashMap<>();
-
     private final List<Entity> entitiesToAdd = new ArrayList<>();
-    private final List<Entity> entitiesToRemove = new LinkedList<>();
-    private final Set<Entity> entitiesToValidate = new HashSet<>();
+    private final List<Entity> entitiesToRemove = new ArrayList<>();
+    private final EntitySet entitiesToValidate = new EntitySet();
 
-    private final List<Entity> entities = new LinkedList<>();
+    private final EntitySet entities = new EntitySet();
 
     /**Components**/
     private final List<Class<? extends Component>> components = new ArrayList<>();
+    private final ArchetypeStorage storage = new ArchetypeStorage(components);
+
+    public ECSManager() { this(ForkJoinPool.commonPool()); }
 
-    public ECSManager() { entityID = 0; }
+    /**
+     * @param pool Pool systems are updated on, a pool with a parallelism of 1 updates systems serially
+     */
+    public ECSManager(ForkJoinPool pool) { scheduler = new SystemScheduler(pool); }
 
     public void addSystem(ECSystem... systems){
         for(ECSystem system : systems){
-            for(ComponentSorter cs : system.getComponentSorters())
+            for(ComponentSorter cs : system.getComponentSorters()){
                 loadComponents(cs.getIncludedComponents());
+                cs.bind(components);
+            }
+            for(Class<? extends Component> c : system.getReads())  loadComponent(c);
+            for(Class<? extends Component> c : system.getWrites()) loadComponent(c);
 
+            system.setPool(scheduler.getPool());
             this.systems.add(system);
         }
+
+        scheduler.build(this.systems, components);
     }
 
     /**Entities**/
+    /*
+     * Structural changes are recorded into the calling thread's CommandBuffer and applied in update,
+     * so they are safe to call from systems running in parallel. New entities get their ID when applied,
+     * loaded entities keep theirs unless its slot is already taken.
+     */
+
     public Entity createEntity(Transformation transformation, Component... components){
-        Entity e = new Entity(entityID++, transformation, validateComponents(components));
-        entitiesToAdd.add(e);
+        Entity e = new Entity(transformation, validateComponents(components));
+        commands.get().record(CommandBuffer.CREATE_ENTITY, e, null);
         return e;
     }
 
     public Entity createEntity(Transformation transformation, List<Component> components){
-        Entity e = new Entity(entityID++, transformation, validateComponents(components));
-        entitiesToAdd.add(e);
+        Entity e = new Entity(transformation, validateComponents(components));
+        commands.get().record(CommandBuffer.CREATE_ENTITY, e, null);
         return e;
     }
 
-    public void addEntity(Entity e){ e.setID(entityID++); entitiesToAdd.add(e); }
-    public void loadEntity(Entity e){ entitiesToAdd.add(e); }
-    public void removeEntity(Entity e){ entitiesToRemove.add(e); }
+    public void addEntity(Entity e){ validateComponents(e.getComponentList()); commands.get().record(CommandBuffer.CREATE_ENTITY, e, null); }
+    public void loadEntity(Entity e){ validateComponents(e.getComponentList()); commands.get().record(CommandBuffer.LOAD_ENTITY, e, null); }
+    public void removeEntity(Entity e){ commands.get().record(CommandBuffer.REMOVE_ENTITY, e, null); }
 
-    public void addComponent(Entity e, Component... components){ componentsToAdd.put(e, validateComponents(components)); }
-    public void removeComponent(Entity e, Component... components){ componentsToRemove.put(e, components); }
+    public void addComponent(Entity e, Component... components){ commands.get().record(CommandBuffer.ADD_COMPONENT, e, listToArray(validateComponents(components))); }
+    public void removeComponent(Entity e, Component... components){ commands.get().record(CommandBuffer.REMOVE_COMPONENT, e, components); }
+
+    /**
+     * @param id entity ID
+     * @return True if the ID belongs to a stored entity and hasn't been recycled since
+     */
+    public boolean isAlive(long id){ return storage.isAlive(id); }
+
+    /**
+     * Find a stored entity by ID, entities are only found once an update has added them
+     * @param id entity ID
+     * @return entity, null if no stored entity has the ID
+     */
+    public Entity getEntity(long id){ return storage.getEntity(id); }
+
+    /**
+     * Find stored entities by ID
+     * @param ids entity IDs
+     * @return entities in the same order as the IDs, null where no stored entity has the ID
+     */
+    public Entity[] getEntities(long[] ids){ return getEntities(ids, new Entity[ids.length]); }
+
+    /**
+     * Find stored entities by ID into an existing array
+     * @param ids entity IDs
+     * @param dest array to fill, at least as long as ids
+     * @return dest
+     */
+    public Entity[] getEntities(long[] ids, Entity[] dest){
+        for(int i = 0; i < ids.length; i++)
+            dest[i] = storage.getEntity(ids[i]);
+        return dest;
+    }
 
     /**Components**/
 
@@ -132,22 +192,9 @@ public class ECSManager {
     }
 
     public void update(float interval){
-        for(ECSystem s : systems)
-            s.update(interval);
-
-        for(Entity e : componentsToRemove.keySet()){
-            e.remove(componentsToRemove.get(e));
-            entitiesToValidate.add(e);
-        }
-        componentsToRemove.clear();
-
-        for(Entity e : componentsToAdd.keySet()){
-            e.add(componentsToAdd.get(e));
-            entitiesToValidate.add(e);
-        }
-        componentsToAdd.clear();
+        scheduler.run(interval);
 
-        entities.addAll(entitiesToAdd);
+        playback();
 
         for(ECSystem s : systems){
             for(Entity e : entitiesToAdd)
@@ -158,11 +205,77 @@ public class ECSManager {
                 s.remove(e);
         }
 
-        entities.removeAll(entitiesToRemove);
+        //Cleared before detaching as removed entities give up their index
+        entitiesToValidate.clear();
+
+        for(Entity e : entitiesToRemove){
+            entities.remove(e);
+            storage.detach(e);
+        }
 
         entitiesToAdd.clear();
         entitiesToRemove.clear();
-        entitiesToValidate.clear();
+    }
+
+    /**
+     * Apply every recorded command, merging all thread buffers by sort key
+     * Commands with equal keys keep the order they were recorded in
+     */
+    private void playback(){
+        synchronized(buffers){
+            //Threads that have finished never record again, their buffers are dropped once played back
+            buffers.removeIf(CommandBuffer::isAbandoned);
+
+            int count = buffers.size();
+            if(cursors.length < count) cursors = new int[count];
+
+            for(int i = 0; i < count; i++){
+                buffers.get(i).sort();
+                cursors[i] = 0;
+            }
+
+            while(true){
+                int next = -1;
+                long key = 0, order = 0;
+                for(int i = 0; i < count; i++){
+                    CommandBuffer buffer = buffers.get(i);
+                    if(cursors[i] == buffer.getCount()) continue;
+
+                    long k = buffer.getKey(cursors[i]);
+                    long o = buffer.getSequence(cursors[i]);
+                    if(next == -1 || k < key || (k == key && o < order)){ next = i; key = k; order = o; }
+                }
+                if(next == -1) break;
+
+                apply(buffers.get(next), cursors[next]++);
+            }
+
+            for(int i = 0; i < count; i++)
+                buffers.get(i).clear();
+        }
+    }
+
+    private void apply(CommandBuffer buffer, int i){
+        Entity e = buffer.getEntity(i);
+
+        switch(buffer.getOp(i)){
+            case CommandBuffer.CREATE_ENTITY:
+            case CommandBuffer.LOAD_ENTITY:
+                storage.attach(e, buffer.getOp(i) == CommandBuffer.LOAD_ENTITY);
+                if(entities.add(e)) entitiesToAdd.add(e);
+                break;
+            case CommandBuffer.REMOVE_ENTITY:
+                entitiesToRemove.add(e);
+                break;
+            case CommandBuffer.ADD_COMPONENT:
+                e.add(buffer.getComponents(i));
+                entitiesToValidate.add(e);
+                break;
+            case CommandBuffer.REMOVE_COMPONENT:
+                e.remove(buffer.getComponents(i));
+                entitiesToValidate.add(e);
+                break;
+        }
     }
 
     /**
@@ -181,5 +294,6 @@ public class ECSManager {
     public List<ECSystem>                   getSystems()   { return systems;    }
     public List<Entity>                     getEntities()  { return entities;   }
     public List<Class<? extends Component>> getComponents(){ return components; }
+    public ArchetypeStorage                 getStorage()   { return storage;    }
 
 }
@@ -8,19 +8,25 @@ import java.util.List;
 public class Entity {
     private long id;
     private Transformation transformation;
-    private final Map<Class<? extends Component>, Component> components;
+
+    /**Storage**/
+    int       index = -1;                                       //Dense slot assigned while stored, recycled after removal
+    final Map<Class<? extends Component>, Component> pending;   //Components held while entity isn't in an ArchetypeStorage
+    Archetype archetype;                                        //Archetype the entity is stored in, null if not stored
+    Chunk     chunk;                                            //Chunk within the archetype
+    int       row = -1;                                         //Row within the chunk
 
     public Entity(){ this(new Transformation()); }
 
     public Entity(Transformation transformation, List<Component> components){
         this.transformation = transformation;
-        this.components = new HashMap<>();
+        this.pending = new HashMap<>();
         add(components);
     }
 
     public Entity(Transformation transformation, Component... components){
         this.transformation = transformation;
-        this.components = new HashMap<>();
+        this.pending = new HashMap<>();
         add(components);
     }
 
@@ -34,34 +40,104 @@ public class Entity {
         this.id = id;
     }
 
+    /**Handles**/
+    /*
+     * Entity IDs are generational handles - [generation][index], both 32 bits
+     * The index is the entity's slot in the ArchetypeStorage and is reused once the entity is removed,
+     * the generation changes every time the slot is freed so stale IDs can be detected.
+     * New generations start at 1 and loaded IDs with generation 0 are moved to generation 1,
+     * so an ID of 0 never belongs to a stored entity.
+     */
+
+    public static long handle(int index, int generation){ return ((long)generation << 32) | (index & 0xFFFFFFFFL); }
+    public static int index(long id){ return (int)id; }
+    public static int generation(long id){ return (int)(id >>> 32); }
+
     /**
      * Get all components of type in an entity
      * @return specified component
      */
     @SuppressWarnings("unchecked")
-    public <T> T get(Class<? extends Component> componentClass){ return (T)components.get(componentClass); }
-    public void add(List<Component> components){ for(Component c : components) this.components.put(c.getClass(), c); }
-    public void add(Component... components){ for(Component c : components) this.components.put(c.getClass(), c); }
-    public void remove(Component... components){ for(Component c : components) this.components.remove(c.getClass()); }
+    public <T> T get(Class<? extends Component> componentClass){
+        if(archetype == null) return (T)pending.get(componentClass);
+
+        int column = archetype.indexOf(componentClass);
+        return column < 0 ? null : chunk.get(column, row);
+    }
+
+    public void add(List<Component> components){ add(components.toArray(new Component[0])); }
+    public void add(Component... components){
+        if(archetype != null) archetype.getStorage().add(this, components);
+        else for(Component c : components) pending.put(c.getClass(), c);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void remove(Component... components){
+        Class<? extends Component>[] classes = (Class<? extends Component>[])new Class<?>[components.length];
+        for(int i = 0; i < classes.length; i++) classes[i] = components[i].getClass();
+
+        if(archetype != null) archetype.getStorage().remove(this, classes);
+        else for(Class<? extends Component> c : classes) pending.remove(c);
+    }
 
     @SafeVarargs
-    public final boolean contains(Class<? extends Component>... components){ return this.components.keySet().containsAll(Arrays.asList(components)); }
+    public final boolean contains(Class<? extends Component>... components){
+        for(Class<? extends Component> c : components)
+            if(!has(c)) return false;
+        return true;
+    }
 
     @SafeVarargs
     public final boolean containsAny(Class<? extends Component>... components){
-        Set<Class<? extends Component>> s = this.components.keySet();
-        for(Class<? extends Component> c : components){
-            if(s.contains(c)) return true;
-        }
+        for(Class<? extends Component> c : components)
+            if(has(c)) return true;
         return false;
     }
 
+    private boolean has(Class<? extends Component> component){ return archetype != null ? archetype.contains(component) : pending.containsKey(component); }
+
     /**Getters**/
 
     public long getID(){ return id; }
+    public int getIndex(){ return index; }
 
     public Transformation getTransformation(){ return transformation; }
-    public Map<Class<? extends Component>, Component> getComponents(){ return components; }
+    public Archetype getArchetype(){ return archetype; }
+
+    /**
+     * Stored entities share the signature of their archetype, which is swapped whenever components are added or removed
+     * @return Bitmask of the component IDs this entity holds
+     */
+    public Signature getSignature(){
+        if(archetype != null) return archetype.getSignature();
+
+        Signature signature = new Signature();
+        for(Component c : pending.values())
+            if(c.getID() >= 0) signature.set((int)c.getID());
+        return signature;
+    }
+
+    /**
+     * Components are kept in chunks rather than a map, the returned map is a copy and changing it doesn't change the entity
+     * @return A new map holding every component of this entity keyed by its class
+     */
+    public Map<Class<? extends Component>, Component> getComponents(){
+        Map<Class<? extends Component>, Component> components = new LinkedHashMap<>();
+        for(Component c : getComponentList()) components.put(c.getClass(), c);
+        return components;
+    }
+
+    /**
+     * @return A new list holding every component of this entity
+     */
+    public List<Component> getComponentList(){
+        if(archetype == null) return new ArrayList<>(pending.values());
+
+        List<Component> components = new ArrayList<>(archetype.getTypes().length);
+        for(int i = 0; i < archetype.getTypes().length; i++)
+            components.add(chunk.get(i, row));
+        return components;
+    }
 
     /**Setters**/
 
@@ -74,9 +150,11 @@ public class Entity {
     public String toString(){
         StringBuilder builder = new StringBuilder();
 
+        List<Component> components = getComponentList();
+
         builder.append("Entity[").append(id).append("]{\n");
         builder.append("  Components(").append(components.size()).append("){").append("\n");
-        for(Component c : components.values())
+        for(Component c : components)
             builder.append("    ").append(c.getClass().getSimpleName()).append(", ID: ").append(c.getID()).append("\n");
         builder.append("  }\n").append("}");
 
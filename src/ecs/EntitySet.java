@@ -0,0 +1,104 @@
+package ecs;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Sparse set of entities keyed by {@link Entity#getIndex()}
+ * Membership, add and remove are O(1), removal swaps the last entity into the hole
+ * Iteration order is stable between structural changes, iterate with size() and get(i) to avoid allocating an iterator
+ */
+public class EntitySet extends AbstractList<Entity> implements RandomAccess {
+    private static final int NONE = -1;
+
+    private Entity[] dense  = new Entity[16];   //Packed entities
+    private int[]    sparse = new int[16];      //Entity index -> position in dense, NONE if absent
+    private int      size;
+
+    public EntitySet(){ Arrays.fill(sparse, NONE); }
+
+    /**
+     * Add an entity to the set
+     * Entities that aren't stored in an ECSManager (no index) are ignored
+     * @param e entity to add
+     * @return True if the entity wasn't in the set already
+     */
+    @Override
+    public boolean add(Entity e){
+        int index = e.getIndex();
+        if(index < 0 || contains(e)) return false;
+
+        if(index >= sparse.length){
+            int length = sparse.length;
+            sparse = Arrays.copyOf(sparse, Math.max(index + 1, length * 2));
+            Arrays.fill(sparse, length, sparse.length, NONE);
+        }
+        if(size == dense.length) dense = Arrays.copyOf(dense, size * 2);
+
+        dense[size]   = e;
+        sparse[index] = size++;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Remove an entity from the set by moving the last entity into its place
+     * @param o entity to remove
+     * @return True if the entity was in the set
+     */
+    @Override
+    public boolean remove(Object o){
+        if(!contains(o)) return false;
+
+        Entity e = (Entity)o;
+        int position = sparse[e.getIndex()];
+        Entity last = dense[--size];
+
+        dense[position] = last;
+        sparse[last.getIndex()] = position;
+
+        dense[size] = null;
+        sparse[e.getIndex()] = NONE;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o){
+        if(!(o instanceof Entity)) return false;
+
+        int index = ((Entity)o).getIndex();
+        if(index < 0 || index >= sparse.length) return false;
+
+        int position = sparse[index];
+        return position != NONE && dense[position] == o;
+    }
+
+    @Override
+    public void clear(){
+        for(int i = 0; i < size; i++){
+            sparse[dense[i].getIndex()] = NONE;
+            dense[i] = null;
+        }
+        size = 0;
+        modCount++;
+    }
+
+    /**Getters**/
+
+    @Override
+    public Entity get(int i){
+        if(i >= size) throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        return dense[i];
+    }
+
+    @Override
+    public int size(){ return size; }
+
+    /**
+     * Backing array of the set, only the first {@link #size()} entities are in use
+     * @return dense entity array
+     */
+    public Entity[] getDense(){ return dense; }
+}
@@ -0,0 +1,121 @@
+package ecs;
+
+import java.util.Arrays;
+
+public class Signature {
+    private static final long[] NO_WORDS = new long[0];
+
+    private long[] words;   //Bit n is set if the component with ID n is present
+
+    public Signature(){ this.words = NO_WORDS; }
+
+    public Signature(Signature signature){ this.words = signature.words.clone(); }
+
+    /**
+     * Set the bit of a component ID
+     * @param componentID component ID assigned by the ECSManager
+     * @return this signature
+     */
+    public Signature set(int componentID){
+        int word = componentID >>> 6;
+        if(word >= words.length) words = Arrays.copyOf(words, word + 1);
+
+        words[word] |= 1L << componentID;
+        return this;
+    }
+
+    /**
+     * Clear the bit of a component ID
+     * @param componentID component ID assigned by the ECSManager
+     * @return this signature
+     */
+    public Signature clear(int componentID){
+        int word = componentID >>> 6;
+        if(word < words.length) words[word] &= ~(1L << componentID);
+        return this;
+    }
+
+    public boolean get(int componentID){
+        int word = componentID >>> 6;
+        return word < words.length && (words[word] & (1L << componentID)) != 0;
+    }
+
+    /**
+     * @param signature signature to test against
+     * @return True if every bit set in the given signature is also set in this one
+     */
+    public boolean containsAll(Signature signature){
+        long[] other = signature.words;
+        for(int i = 0; i < other.length; i++){
+            long word = i < words.length ? words[i] : 0;
+            if((other[i] & ~word) != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param signature signature to test against
+     * @return True if this signature shares at least one set bit with the given one
+     */
+    public boolean intersects(Signature signature){
+        long[] other = signature.words;
+        int length = Math.min(words.length, other.length);
+        for(int i = 0; i < length; i++)
+            if((words[i] & other[i]) != 0) return true;
+        return false;
+    }
+
+    /**
+     * @return Set component IDs in ascending order
+     */
+    public int[] toArray(){
+        int count = 0;
+        for(long word : words) count += Long.bitCount(word);
+
+        int[] ids = new int[count];
+        int index = 0;
+        for(int i = 0; i < words.length; i++){
+            long word = words[i];
+            while(word != 0){
+                ids[index++] = (i << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return ids;
+    }
+
+    public boolean isEmpty(){
+        for(long word : words) if(word != 0) return false;
+        return true;
+    }
+
+    /**Equality**/
+
+    @Override
+    public boolean equals(Object o){
+        if(this == o) return true;
+        if(!(o instanceof Signature)) return false;
+
+        long[] other = ((Signature)o).words;
+        int length = Math.max(words.length, other.length);
+        for(int i = 0; i < length; i++){
+            long a = i < words.length ? words[i] : 0;
+            long b = i < other.length ? other[i] : 0;
+            if(a != b) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode(){
+        //Trailing empty words are ignored so equal signatures of different lengths hash the same
+        long hash = 1234;
+        for(int i = words.length; --i >= 0;)
+            hash ^= words[i] * (i + 1);
+        return (int)((hash >> 32) ^ hash);
+    }
+
+    /**String**/
+
+    public String toString(){ return Arrays.toString(toArray()); }
+}
@@ -0,0 +1,167 @@
+package ecs.components;
+
+import ecs.Chunk;
+import utils.maths.vectors.Vector3;
+import utils.reflection.ComponentCodec;
+import utils.serialisation.dataObjects.TSArray;
+import utils.serialisation.dataObjects.TSBase;
+import utils.serialisation.dataObjects.TSObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Component whose values are stored as struct-of-arrays primitive columns inside the chunk holding its entity
+ * Subclasses declare their layout with {@link Columns} and expose fields through the typed getters and setters,
+ * systems that want linear arrays can read {@link Chunk#getFloats(int, int)} and friends directly.
+ *
+ * While the entity isn't stored the values live on the component itself,
+ * once stored the component is a flyweight pointing at its row.
+ * Column values are saved as arrays, any other fields declared by subclasses are saved through their ComponentCodec.
+ */
+public abstract class ColumnComponent extends Component implements ComponentSerializer, ComponentDeserialiser {
+    private static final Columns NO_COLUMNS = Empty.class.getAnnotation(Columns.class);
+    private static final ClassValue<Columns> LAYOUTS = new ClassValue<Columns>() {
+        @Override
+        protected Columns computeValue(Class<?> type){
+            Columns columns = type.getAnnotation(Columns.class);
+            return columns != null ? columns : NO_COLUMNS;
+        }
+    };
+
+    /**Values while not stored**/
+    private final float[] floats;
+    private final int[]   ints;
+    private final long[]  longs;
+
+    /**Binding while stored**/
+    private Chunk chunk;
+    private int   column;
+    private int   row;
+
+    protected ColumnComponent(){
+        Columns layout = layout(getClass());
+        this.floats = new float[layout.floats()];
+        this.ints   = new int  [layout.ints()  ];
+        this.longs  = new long [layout.longs() ];
+    }
+
+    /**
+     * @param type component class
+     * @return Column layout declared on the class, an empty layout if not annotated
+     */
+    public static Columns layout(Class<?> type){ return LAYOUTS.get(type); }
+
+    /**Binding**/
+
+    /**
+     * Point the component at a chunk row, copying its current values into the row
+     * Called by Chunk whenever the component is stored or its row moves
+     * @param chunk chunk holding the component
+     * @param column column of the component within the chunk
+     * @param row row of the component's entity
+     */
+    public void bind(Chunk chunk, int column, int row){
+        if(this.chunk != chunk || this.row != row){
+            for(int i = 0; i < floats.length; i++) chunk.getFloats(column, i)[row] = getFloat(i);
+            for(int i = 0; i < ints.length;   i++) chunk.getInts  (column, i)[row] = getInt(i);
+            for(int i = 0; i < longs.length;  i++) chunk.getLongs (column, i)[row] = getLong(i);
+        }
+
+        this.chunk  = chunk;
+        this.column = column;
+        this.row    = row;
+    }
+
+    /**
+     * Unbind only if the component still points at the given row
+     * Called by Chunk when a row is overwritten or cleared
+     * @param chunk chunk of the row
+     * @param row row being overwritten
+     */
+    public void unbind(Chunk chunk, int row){
+        if(this.chunk == chunk && this.row == row) unbind();
+    }
+
+    /**
+     * Copy the row's values back onto the component and stop pointing at the chunk
+     */
+    public void unbind(){
+        if(chunk == null) return;
+
+        for(int i = 0; i < floats.length; i++) floats[i] = getFloat(i);
+        for(int i = 0; i < ints.length;   i++) ints[i]   = getInt(i);
+        for(int i = 0; i < longs.length;  i++) longs[i]  = getLong(i);
+        chunk = null;
+    }
+
+    /**Serialisation**/
+
+    @Override
+    public List<TSBase> serialise(){
+        List<TSBase> fields = new ArrayList<>();
+
+        float[] f = new float[floats.length]; for(int i = 0; i < f.length; i++) f[i] = getFloat(i);
+        int[]   n = new int  [ints.length  ]; for(int i = 0; i < n.length; i++) n[i] = getInt(i);
+        long[]  l = new long [longs.length ]; for(int i = 0; i < l.length; i++) l[i] = getLong(i);
+
+        if(f.length > 0) fields.add(TSArray.Float  ("floats", f));
+        if(n.length > 0) fields.add(TSArray.Integer("ints"  , n));
+        if(l.length > 0) fields.add(TSArray.Long   ("longs" , l));
+
+        ComponentCodec.of(getClass()).serialise(this, fields);
+        return fields;
+    }
+
+    @Override
+    public void deserialise(TSObject object){
+        TSArray floats = object.findArray("floats");
+        TSArray ints   = object.findArray("ints");
+        TSArray longs  = object.findArray("longs");
+        set(floats != null ? floats.getFloatData() : null,
+            ints   != null ? ints  .getIntData()   : null,
+            longs  != null ? longs .getLongData()  : null);
+
+        ComponentCodec.of(getClass()).deserialise(object, this);
+    }
+
+    /**
+     * Set every value at once, used when loading
+     * Arrays that are null or don't match the layout are ignored
+     */
+    public void set(float[] floats, int[] ints, long[] longs){
+        if(floats != null && floats.length == this.floats.length) for(int i = 0; i < floats.length; i++) setFloat(i, floats[i]);
+        if(ints   != null && ints.length   == this.ints.length  ) for(int i = 0; i < ints.length;   i++) setInt  (i, ints[i]  );
+        if(longs  != null && longs.length  == this.longs.length ) for(int i = 0; i < longs.length;  i++) setLong (i, longs[i] );
+    }
+
+    /**Getters**/
+
+    public float getFloat(int field){ return chunk != null ? chunk.getFloats(column, field)[row] : floats[field]; }
+    public int   getInt  (int field){ return chunk != null ? chunk.getInts  (column, field)[row] : ints[field];   }
+    public long  getLong (int field){ return chunk != null ? chunk.getLongs (column, field)[row] : longs[field];  }
+
+    /**
+     * Read three consecutive float fields into a vector
+     * @param field first field
+     * @param dest destination vector
+     * @return dest
+     */
+    public Vector3 getVector3(int field, Vector3 dest){ return dest.set(getFloat(field), getFloat(field + 1), getFloat(field + 2)); }
+
+    /**Setters**/
+
+    public void setFloat(int field, float value){ if(chunk != null) chunk.getFloats(column, field)[row] = value; else floats[field] = value; }
+    public void setInt  (int field, int   value){ if(chunk != null) chunk.getInts  (column, field)[row] = value; else ints[field]   = value; }
+    public void setLong (int field, long  value){ if(chunk != null) chunk.getLongs (column, field)[row] = value; else longs[field]  = value; }
+
+    /**
+     * Write a vector into three consecutive float fields
+     * @param field first field
+     * @param value vector to write
+     */
+    public void setVector3(int field, Vector3 value){ setFloat(field, value.getX()); setFloat(field + 1, value.getY()); setFloat(field + 2, value.getZ()); }
+
+    @Columns
+    private static class Empty { }
+}
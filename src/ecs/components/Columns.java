@@ -0,0 +1,17 @@
+package ecs.components;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares how many primitive columns a ColumnComponent stores per entity
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Columns {
+    int floats() default 0;
+    int ints()   default 0;
+    int longs()  default 0;
+}
@@ -1,5 +1,7 @@
 package ecs.components;
 
+import utils.serialisation.dataObjects.TSObject;
+
 public interface ComponentDeserialiser {
-    void deserialise();
+    void deserialise(TSObject object);
 }
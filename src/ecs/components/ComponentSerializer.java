@@ -4,6 +4,11 @@ import utils.serialisation.dataObjects.TSBase;
 
 import java.util.List;
 
+/**
+ * Component with its own save instructions
+ * Saving with a pool (see Loader.saveECSManagerToDatabase) calls serialise on several components at once, so it
+ * mustn't change shared state without synchronising
+ */
 public interface ComponentSerializer {
     List<TSBase> serialise();
 }
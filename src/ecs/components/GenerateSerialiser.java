@@ -0,0 +1,18 @@
+package ecs.components;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates a {@link GeneratedSerialiser} for a component at build time, which Loader prefers over reflection
+ * Every non-static field is stored, so fields have to be non-private and non-final
+ * The generated serialiser reads and writes fields directly from the component's package, so annotating a class trades
+ * its fields' encapsulation for serialisation without reflection. Components that keep private fields are still saved
+ * through ComponentCodec, see _main.GeneratedComponent for an example written for the generator
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GenerateSerialiser {
+}
@@ -0,0 +1,38 @@
+package ecs.components;
+
+import utils.serialisation.dataObjects.TSBase;
+import utils.serialisation.dataObjects.TSObject;
+
+import java.util.List;
+
+/**
+ * Serialiser generated for a component annotated with {@link GenerateSerialiser}
+ * Generated serialisers are named after their component with "Serialiser" appended, nested class names are joined
+ * with underscores, and are placed in the component's package
+ * @param <T> component type
+ */
+public interface GeneratedSerialiser<T extends Component> {
+    String SUFFIX = "Serialiser";
+
+    /**
+     * @param component component to store
+     * @return TSBases holding the component's fields
+     */
+    List<TSBase> serialise(T component);
+
+    /**
+     * @param component component to load into
+     * @param object TSObject of the component
+     */
+    void deserialise(T component, TSObject object);
+
+    /**
+     * @param type component class
+     * @return Name of the serialiser generated for the class
+     */
+    static String getName(Class<?> type){
+        String packageName = type.getPackageName();
+        String name = packageName.isEmpty() ? type.getName() : type.getName().substring(packageName.length() + 1);
+        return (packageName.isEmpty() ? "" : packageName + ".") + name.replace('$', '_') + SUFFIX;
+    }
+}
@@ -1,30 +1,46 @@
 package ecs.systems;
 
 import ecs.Entity;
+import ecs.EntitySet;
+import ecs.Signature;
 import ecs.components.Component;
 
-import java.util.LinkedList;
 import java.util.List;
 
 public class ComponentSorter {
     private final boolean strict;
     private final Class<? extends Component>[] include;
-    private final List<Entity> entities;
+    private final EntitySet entities;
+
+    private Signature mask;     //Component IDs of "include", set once the sorter is added to an ECSManager
 
     @SafeVarargs
     public ComponentSorter(boolean strict, Class<? extends Component>... components){
         this.strict = strict;
         this.include = components;
-        this.entities = new LinkedList<>();
+        this.entities = new EntitySet();
+    }
+
+    /**
+     * Build the include mask from the component IDs assigned by an ECSManager
+     * @param components Component classes used by the ECSManager, a component's ID is its index in this list
+     */
+    public void bind(List<Class<? extends Component>> components){
+        Signature mask = new Signature();
+        for(Class<? extends Component> c : include)
+            mask.set(components.indexOf(c));
+        this.mask = mask;
     }
 
-    private boolean matches(Entity e){ if(strict) return e.contains(include); else return e.containsAny(include); }
+    private boolean matches(Entity e){
+        if(mask == null){ if(strict) return e.contains(include); else return e.containsAny(include); }
+
+        if(strict) return e.getSignature().containsAll(mask); else return e.getSignature().intersects(mask);
+    }
 
     public synchronized boolean consider(Entity e){
-        if(this.matches(e)){
-            this.entities.add(e);
-            return true;
-        }
+        if(this.matches(e))
+            return this.entities.add(e);
 
         return false;
     }
@@ -46,6 +62,7 @@ public class ComponentSorter {
 
     /**Getters**/
 
-    public List<Entity> getEntities(){ return entities; }
+    public EntitySet getEntities(){ return entities; }
     public Class<? extends Component>[] getIncludedComponents(){ return include; }
+    public Signature getMask(){ return mask; }
 }
@@ -1,18 +1,118 @@
 package ecs.systems;
 
+import ecs.Chunk;
+import ecs.CommandBuffer;
 import ecs.Entity;
+import ecs.EntitySet;
+import ecs.components.Component;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public abstract class ECSystem {
+    public static final int BATCH_SIZE         = Chunk.CAPACITY;   //Entities a worker claims at once in forEachParallel
+    public static final int PARALLEL_THRESHOLD = BATCH_SIZE * 2;    //Below this many entities forEachParallel runs sequentially
+
     protected ComponentSorter[] componentSorters;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**Access**/
+    private List<Class<? extends Component>> reads;     //Component types only read during update, null if undeclared
+    private List<Class<? extends Component>> writes;    //Component types written during update, null if undeclared
+    private boolean exclusive;                          //System touches state outside of components and can't share a frame slot
 
     public ECSystem(ComponentSorter... componentSorters){ this.componentSorters = componentSorters; }
 
     public abstract void update(float interval);
 
-    public List<Entity> entities(          ){ return this.entities(0); }
-    public List<Entity> entities(int sorter){ return componentSorters[sorter].getEntities(); }
+    public EntitySet entities(          ){ return this.entities(0); }
+    public EntitySet entities(int sorter){ return componentSorters[sorter].getEntities(); }
+
+    /**
+     * Run an action for every entity of a sorter, spread across the system's pool
+     * Each worker takes contiguous batches of BATCH_SIZE entities until none are left and keeps its own scratch object
+     * The action must only touch the entity it is given and its scratch object, structural changes go through the
+     * ECSManager as usual and are stamped with the batch position so they play back in entity order
+     * @param sorter index of the sorter
+     * @param scratch creates the scratch object of a worker, called once per worker
+     * @param action action to run for every entity
+     */
+    protected <S> void forEachParallel(int sorter, Supplier<S> scratch, BiConsumer<Entity, S> action){
+        EntitySet set = entities(sorter);
+        Entity[] dense = set.getDense();
+        int size = set.size();
+
+        //Batches are recorded one past the caller's key, the caller continues after the last batch
+        long key = CommandBuffer.getSortKey();
+        CommandBuffer.setSortKey(key + 1);
+
+        if(size < PARALLEL_THRESHOLD || pool.getParallelism() <= 1){
+            try{
+                S s = scratch.get();
+                for(int i = 0; i < size; i++) action.accept(dense[i], s);
+            }finally{
+                CommandBuffer.setSortKey(key + size + 1);
+            }
+            return;
+        }
+
+        AtomicInteger cursor = new AtomicInteger();
+        Runnable worker = () -> {
+            long workerKey = CommandBuffer.getSortKey();
+            try{
+                S s = scratch.get();
+                int start;
+                while((start = cursor.getAndAdd(BATCH_SIZE)) < size){
+                    CommandBuffer.setSortKey(key + 1 + start);
+
+                    int end = Math.min(start + BATCH_SIZE, size);
+                    for(int i = start; i < end; i++) action.accept(dense[i], s);
+                }
+            }catch(RuntimeException | Error error){
+                cursor.set(size);   //Stop the other workers claiming batches
+                throw error;
+            }finally{
+                CommandBuffer.setSortKey(workerKey);
+            }
+        };
+
+        //The calling thread works as well, so only parallelism - 1 extra workers are needed
+        int workers = Math.min(pool.getParallelism(), (size + BATCH_SIZE - 1) / BATCH_SIZE) - 1;
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(workers);
+        Throwable failure = null;
+        try{
+            for(int i = 0; i < workers; i++) tasks.add(pool.submit(worker));
+            worker.run();
+        }catch(RuntimeException | Error error){
+            failure = error;
+        }
+
+        //Forked workers are always joined, so none of them is still running once this returns or throws
+        for(ForkJoinTask<?> task : tasks){
+            try{
+                task.join();
+            }catch(RuntimeException | Error error){
+                if(failure == null) failure = error;
+                else                failure.addSuppressed(error);
+            }
+        }
+        CommandBuffer.setSortKey(key + size + 1);
+
+        if(failure instanceof RuntimeException) throw (RuntimeException)failure;
+        if(failure instanceof Error)            throw (Error)failure;
+    }
+
+    protected <S> void forEachParallel(Supplier<S> scratch, BiConsumer<Entity, S> action){ forEachParallel(0, scratch, action); }
+
+    protected void forEachParallel(int sorter, Consumer<Entity> action){ forEachParallel(sorter, () -> null, (e, s) -> action.accept(e)); }
+    protected void forEachParallel(            Consumer<Entity> action){ forEachParallel(0     , () -> null, (e, s) -> action.accept(e)); }
 
     public void consider(Entity e){
         for(ComponentSorter cs : componentSorters)
@@ -29,7 +129,55 @@ public abstract class ECSystem {
             cs.remove(e);
     }
 
+    /**Access**/
+
+    /*
+     * Systems run alone until they declare what they access, declaring reads or writes opts into running
+     * concurrently with systems that don't touch the same component types
+     */
+
+    /**
+     * Declare the component types this system only reads, systems that only read the same types can run concurrently
+     * @param components component classes
+     */
+    @SafeVarargs
+    protected final void reads(Class<? extends Component>... components){
+        List<Class<? extends Component>> reads = new ArrayList<>(components.length);
+        for(Class<? extends Component> c : components) reads.add(c);
+        this.reads = Collections.unmodifiableList(reads);
+    }
+
+    /**
+     * Declare the component types this system writes, other systems touching these types won't run at the same time
+     * @param components component classes
+     */
+    @SafeVarargs
+    protected final void writes(Class<? extends Component>... components){
+        List<Class<? extends Component>> writes = new ArrayList<>(components.length);
+        for(Class<? extends Component> c : components) writes.add(c);
+        this.writes = Collections.unmodifiableList(writes);
+    }
+
+    /**
+     * Mark this system as touching state outside of its components so it never runs alongside another system,
+     * even if it declares reads or writes
+     */
+    protected final void exclusive(){ this.exclusive = true; }
+
     /**Getters**/
 
     public ComponentSorter[] getComponentSorters(){ return componentSorters; }
+
+    public List<Class<? extends Component>> getReads() { return reads  != null ? reads  : Collections.emptyList(); }
+    public List<Class<? extends Component>> getWrites(){ return writes != null ? writes : Collections.emptyList(); }
+
+    /**
+     * @return True if the system never runs alongside another system, either marked exclusive or declaring no access
+     */
+    public boolean isExclusive(){ return exclusive || (reads == null && writes == null); }
+    public ForkJoinPool getPool(){ return pool; }
+
+    /**Setters**/
+
+    public void setPool(ForkJoinPool pool){ this.pool = pool; }
 }
@@ -0,0 +1,127 @@
+package ecs.systems;
+
+import ecs.CommandBuffer;
+import ecs.Signature;
+import ecs.components.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs ECSystems as a dependency graph on a ForkJoinPool
+ * Two systems conflict if one writes a component type the other reads or writes, or if either is exclusive,
+ * systems that don't declare their access are exclusive
+ * Conflicting systems always run in the order they were added, everything else may run concurrently
+ */
+public class SystemScheduler {
+    private final ForkJoinPool pool;
+
+    private ECSystem[] systems      = new ECSystem[0];
+    private int[][]    dependencies = new int[0][];     //Earlier systems each system has to wait for
+
+    public SystemScheduler(ForkJoinPool pool){ this.pool = pool; }
+
+    /**
+     * Rebuild the dependency graph
+     * @param systems systems in the order they were added
+     * @param components Component classes used by the ECSManager, a component's ID is its index in this list
+     */
+    public void build(List<ECSystem> systems, List<Class<? extends Component>> components){
+        int count = systems.size();
+        this.systems = systems.toArray(new ECSystem[0]);
+
+        Signature[] reads  = new Signature[count];
+        Signature[] writes = new Signature[count];
+        for(int i = 0; i < count; i++){
+            reads[i]  = mask(this.systems[i].getReads(),  components);
+            writes[i] = mask(this.systems[i].getWrites(), components);
+        }
+
+        this.dependencies = new int[count][];
+        List<Integer> depends = new ArrayList<>();
+        for(int i = 0; i < count; i++){
+            depends.clear();
+            for(int j = 0; j < i; j++)
+                if(conflicts(i, j, reads, writes)) depends.add(j);
+
+            this.dependencies[i] = depends.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    private boolean conflicts(int a, int b, Signature[] reads, Signature[] writes){
+        if(systems[a].isExclusive() || systems[b].isExclusive()) return true;
+
+        return writes[a].intersects(writes[b]) ||
+               writes[a].intersects(reads[b])  ||
+               writes[b].intersects(reads[a]);
+    }
+
+    private static Signature mask(List<Class<? extends Component>> classes, List<Class<? extends Component>> components){
+        Signature mask = new Signature();
+        for(Class<? extends Component> c : classes){
+            int id = components.indexOf(c);
+            if(id >= 0) mask.set(id);
+        }
+        return mask;
+    }
+
+    /**
+     * Update every system, returns once all of them have finished
+     * @param interval frame interval passed to ECSystem.update
+     */
+    public void run(float interval){
+        if(systems.length <= 1 || pool.getParallelism() <= 1){
+            for(int i = 0; i < systems.length; i++)
+                update(i, interval);
+            return;
+        }
+
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[systems.length];
+        for(int i = 0; i < systems.length; i++){
+            int system = i;
+            Runnable update = () -> update(system, interval);
+
+            int[] depends = dependencies[i];
+            if(depends.length == 0){
+                tasks[i] = CompletableFuture.runAsync(update, pool);
+            }else if(depends.length == 1){
+                tasks[i] = tasks[depends[0]].thenRunAsync(update, pool);
+            }else{
+                CompletableFuture<?>[] waits = new CompletableFuture<?>[depends.length];
+                for(int j = 0; j < depends.length; j++) waits[j] = tasks[depends[j]];
+                tasks[i] = CompletableFuture.allOf(waits).thenRunAsync(update, pool);
+            }
+        }
+
+        try{
+            CompletableFuture.allOf(tasks).join();
+        }catch(CompletionException error){
+            //Rethrow what the system threw so failures look the same as a serial update
+            if(error.getCause() instanceof RuntimeException) throw (RuntimeException)error.getCause();
+            if(error.getCause() instanceof Error) throw (Error)error.getCause();
+            throw error;
+        }
+    }
+
+    /**
+     * Update a single system, stamping its structural changes with the system's sort key
+     * The thread's previous key is restored afterwards, a pool thread may run the update while helping join another task
+     */
+    private void update(int system, float interval){
+        long previous = CommandBuffer.getSortKey();
+        CommandBuffer.setSortKey(system, 0);
+        try{
+            systems[system].update(interval);
+        }finally{
+            CommandBuffer.setSortKey(previous);
+        }
+    }
+
+    /**Getters**/
+
+    public ForkJoinPool getPool(){ return pool; }
+    public int[] getDependencies(int system){ return dependencies[system]; }
+}
@@ -5,74 +5,148 @@ import ecs.ECSManager;
 import ecs.Entity;
 import ecs.Transformation;
 import ecs.components.Component;
+import ecs.components.ComponentDeserialiser;
 import ecs.components.ComponentSerializer;
+import ecs.components.GeneratedSerialiser;
 import utils.logging.LogLevel;
 import utils.logging.Logger;
 import utils.maths.matrices.Matrix3;
 import utils.maths.vectors.Vector3;
+import utils.reflection.ComponentCodec;
 import utils.reflection.ReflectionTools;
-import utils.reflection.TSParser;
 import utils.serialisation.dataObjects.*;
 import utils.serialisation.types.TSDataType;
 
 import java.io.*;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 public class Loader {
+    /**Serialisers generated for components annotated with GenerateSerialiser, null for components without one**/
+    private static final ClassValue<GeneratedSerialiser<Component>> SERIALISERS = new ClassValue<GeneratedSerialiser<Component>>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected GeneratedSerialiser<Component> computeValue(Class<?> type){
+            try{
+                return (GeneratedSerialiser<Component>)Class.forName(GeneratedSerialiser.getName(type), true, type.getClassLoader()).getConstructor().newInstance();
+            }catch(ClassNotFoundException error){
+                return null;    //No serialiser was generated for the component
+            }catch(Exception error){
+                Logger.log(LogLevel.ERROR, Loader.class.getSimpleName(), "Couldn't create generated serialiser of " + type.getName() + "!");
+                Logger.log(LogLevel.ERROR, Loader.class.getSimpleName(), error);
+                return null;
+            }
+        }
+    };
+
+    /**
+     * Store all Entities in an ECSManager into a TSDatabase for saving to file, converting entities on the calling thread
+     * @param manager ECSManager we want to save
+     * @return TSDatabase containing all necessary Entity information for loading later
+     */
+    public TSDatabase saveECSManagerToDatabase(ECSManager manager){ return saveECSManagerToDatabase(manager, null); }
 
     /**
      * Store all Entities in an ECSManager into a TSDatabase for saving to file
+     * With a pool entities are converted to TSObjects concurrently, so ComponentSerializers have to be safe to call
+     * from several threads at once. The database holds entities in ID order either way, so the output doesn't depend
+     * on thread timing or the order entities were stored in
      * @param manager ECSManager we want to save
+     * @param pool pool to convert entities on, null to convert them on the calling thread
      * @return TSDatabase containing all necessary Entity information for loading later
      */
-    public TSDatabase saveECSManagerToDatabase(ECSManager manager){
+    public TSDatabase saveECSManagerToDatabase(ECSManager manager, ForkJoinPool pool){
         //Update ECS to clear and removal queues without updating game logic
         manager.update(0);
 
         TSDatabase database = TSDatabase.Create("MeowintonsDatabase");
 
-        for(Entity e : manager.getEntities()){
-            TSObject entity = TSObject.Create("Entity");
-            //Add entity ID to TSObject
-            entity.add(TSField.Long("ID", e.getID()));
-
-            entity.add(TSField.Matrix3("Basis",  e.getTransformation().getBasis()));
-            entity.add(TSField.Vector3("Origin", e.getTransformation().getOrigin()));
-
-            //Go through each component in entity to store in database
-            for(Component c : e.getComponents().values()){
-                //Create a new TSObject for the component
-                TSObject component = TSObject.Create(c.getClass().getSimpleName());
-                //Add component ID to TSObject
-                component.add(TSField.Long("ID", c.getID()));
-
-                if(c instanceof ComponentSerializer){
-                    //Component has specific serialise instructions
-                    component.add(((ComponentSerializer)c).serialise());
-                }else{
-                    //Store all fields in component
-                    for(Field f : c.getClass().getDeclaredFields()){
-                        TSBase b = TSParser.parseField(c, f);
-                        if(b != null) component.add(b);
-                    }
-                }
-
-                //Add component to parent entity TSObject
-                entity.add(component);
+        //Snapshot the entities, nothing changes them until the next update
+        Entity[] entities = manager.getEntities().toArray(new Entity[0]);
+        Arrays.sort(entities, Comparator.comparingLong(Entity::getID));
+
+        TSObject[] objects = new TSObject[entities.length];
+        if(pool != null && entities.length > 1){
+            //One task per range of entities, a few per worker so uneven entities still balance out
+            int tasks = Math.min(entities.length, pool.getParallelism() * 4);
+            List<Callable<Void>> ranges = new ArrayList<>(tasks);
+            for(int t = 0; t < tasks; t++){
+                int from = (int)((long)entities.length *  t      / tasks);
+                int to   = (int)((long)entities.length * (t + 1) / tasks);
+                ranges.add(() -> {
+                    for(int i = from; i < to; i++) objects[i] = saveEntity(entities[i]);
+                    return null;
+                });
             }
 
-            //Add entity to database
-            database.add(entity);
+            try{
+                for(Future<Void> range : pool.invokeAll(ranges)) range.get();
+            }catch(InterruptedException | ExecutionException error){
+                Logger.log(LogLevel.ERROR, getClass().getSimpleName(), "Error converting entities");
+                Logger.log(LogLevel.ERROR, getClass().getSimpleName(), error);
+                return null;
+            }
+        }else{
+            for(int i = 0; i < entities.length; i++) objects[i] = saveEntity(entities[i]);
         }
 
+        //Add entities to database
+        for(TSObject entity : objects) database.add(entity);
+
         return database;
     }
 
+    /**
+     * Store an entity and its components into a TSObject
+     * @param e entity to store
+     * @return TSObject containing the entity
+     */
+    private TSObject saveEntity(Entity e){
+        TSObject entity = TSObject.Create("Entity");
+        //Add entity ID to TSObject
+        entity.add(TSField.Long("ID", e.getID()));
+
+        entity.add(TSField.Matrix3("Basis",  e.getTransformation().getBasis()));
+        entity.add(TSField.Vector3("Origin", e.getTransformation().getOrigin()));
+
+        //Go through each component in entity to store in database
+        for(Component c : e.getComponentList()){
+            //Create a new TSObject for the component
+            TSObject component = TSObject.Create(c.getClass().getSimpleName());
+            //Add component ID to TSObject
+            component.add(TSField.Long("ID", c.getID()));
+
+            GeneratedSerialiser<Component> serialiser = SERIALISERS.get(c.getClass());
+            if(c instanceof ComponentSerializer){
+                //Component has specific serialise instructions
+                component.add(((ComponentSerializer)c).serialise());
+            }else if(serialiser != null){
+                //Component has a serialiser generated at build time
+                component.add(serialiser.serialise(c));
+            }else{
+                //Store all fields in component
+                ComponentCodec.of(c.getClass()).serialise(c, component);
+            }
+
+            //Add component to parent entity TSObject
+            entity.add(component);
+        }
+
+        return entity;
+    }
+
     /**
      * Reset an ECSManager and load a TSDatabase into it
      * @param manager ECSManager we want to load a TSDatabase into
@@ -114,22 +188,14 @@ public class Loader {
                     Class<? extends Component> clazz = manager.getComponents().get((int)componentID);
 
                     //Create the component object
-                    Object obj = ReflectionTools.createObject(clazz, getClassArguments(clazz));
+                    Object obj = ReflectionTools.createObject(clazz);
+                    if(obj == null) continue;   //Component couldn't be created, the error has been logged
 
                     //Load all component variables and store them in created component object
-                    for(Field f : clazz.getDeclaredFields()){
-                        if(component.getFields().containsKey(f.getName())){
-                            TSField field = component.getFields().get(f.getName());
-                            ReflectionTools.setField(obj, f, field.getDataObject());
-                        }else if(component.getArrays().containsKey(f.getName())){
-                            TSArray array = component.getArrays().get(f.getName());
-
-                            //Check if field is a List
-                            //If yes convert array data into List data
-                            //If no assign array data
-                            ReflectionTools.setField(obj, f, f.getType().isAssignableFrom(List.class) ? TSParser.convertToList(array.getDataObject()) : array.getDataObject());
-                        }
-                    }
+                    GeneratedSerialiser<Component> serialiser = SERIALISERS.get(clazz);
+                    if(obj instanceof ComponentDeserialiser) ((ComponentDeserialiser)obj).deserialise(component);
+                    else if(serialiser != null)              serialiser.deserialise((Component)obj, component);
+                    else                                     ComponentCodec.of(clazz).deserialise(component, obj);
 
                     //Add component object to list of components
                     components.add((Component)obj);
@@ -144,20 +210,6 @@ public class Loader {
         manager.update(0);
     }
 
-    private Class<?>[] getClassArguments(Class<?> clazz){
-        //Get first available constructor for component
-        Constructor<?> constructor = clazz.getConstructors()[0];
-        //Create array of Classes to store argument Class types in
-        Class<?>[] clazzArguments = new Class<?>[constructor.getParameters().length];
-
-        //Store all Class types into array
-        for(int i = 0; i < clazzArguments.length; i++)
-            clazzArguments[i] = constructor.getParameters()[i].getType();
-
-        //Return Class argument array
-        return clazzArguments;
-    }
-
     /**
      * Get BufferedReader from local file
      * @param file String path to local file
@@ -247,4 +299,30 @@ public class Loader {
             return null;
         }
     }
+
+    /**
+     * Map an external file into memory, the file is read lazily through the page cache instead of copied onto the heap
+     * Files larger than 2GB can't be mapped into a single buffer
+     * @param file String path to external file
+     * @return read only MappedByteBuffer of the file
+     */
+    public MappedByteBuffer getMappedData(String file){ return getMappedData(Paths.get(file)); }
+
+    /**
+     * Map an external file into memory
+     * @param file External file
+     * @return read only MappedByteBuffer of the file
+     */
+    public MappedByteBuffer getMappedData(File file){ return getMappedData(file.toPath()); }
+
+    private MappedByteBuffer getMappedData(Path file){
+        //The mapping stays valid after the channel is closed
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }catch(Exception error){
+            Logger.log(LogLevel.ERROR,Loader.class.getSimpleName(),"Error mapping file: " + file);
+            Logger.log(LogLevel.ERROR,Loader.class.getSimpleName(),error);
+            return null;
+        }
+    }
 }
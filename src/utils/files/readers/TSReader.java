@@ -10,14 +10,23 @@ import utils.maths.matrices.Quaternion;
 import utils.maths.vectors.Vector2;
 import utils.maths.vectors.Vector3;
 import utils.maths.vectors.Vector4;
+import utils.serialisation.compression.TSBlocks;
+import utils.serialisation.dataObjects.TSIndex;
+import utils.serialisation.dataObjects.TSObject;
 import utils.serialisation.types.TSDataType;
 
 import java.io.BufferedInputStream;
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 public class TSReader extends FileReader {
     protected BufferedInputStream reader;
-    protected byte[]              data;
+    protected byte[]              data;     //File contents, null when the file is mapped
+    protected ByteBuffer          buffer;   //File contents, either wrapping data or mapped straight from the file
+    protected TSBlocks            blocks;   //Blocks of a compressed file, decompressed into buffer on first use
+    protected TSIndex             index;    //Index of the file's database, read on first use
 
     @Override
     public void open(Loader loader, String file){
@@ -35,8 +44,48 @@ public class TSReader extends FileReader {
         readData();
     }
 
+    /**
+     * Map a local file into memory instead of copying it onto the heap
+     * Only {@link #getBuffer()} is available, deserialise it with TSDatabase.deserialise(ByteBuffer)
+     * Compressed files are only decompressed onto the heap once their buffer is asked for,
+     * {@link #readObject(long, boolean)} only decompresses the blocks it reads
+     * @param loader Loader class
+     * @param file local file path
+     */
+    public void map(Loader loader, String file){
+        this.fileName = file;
+        setBuffer(loader.getMappedData(file));
+    }
+
+    /**
+     * Map an external file into memory instead of copying it onto the heap
+     * @param loader Loader class
+     * @param file external file class
+     */
+    public void map(Loader loader, File file){
+        this.fileName = file.getName();
+        setBuffer(loader.getMappedData(file));
+    }
+
+    /**
+     * Read a single top level object out of the file without deserialising the rest of the database
+     * Needs a file written with an index, see TSWriter.writeDatabaseToFile(TSDatabase, boolean)
+     * @param id value of the object's "ID" field
+     * @param lazy True to decode the object's children on first access
+     * @return object, null if the file has no index or no object has the ID
+     */
+    public TSObject readObject(long id, boolean lazy){
+        TSIndex index = getIndex();
+        return index != null ? index.findObject(id, lazy) : null;
+    }
+
     @Override
     public void close(){
+        this.buffer = null;
+        this.blocks = null;
+        this.index  = null;     //Mapped files are unmapped once the buffer is collected
+        if(this.reader == null) return;
+
         try{
             this.reader.close();
         }catch(Exception error){
@@ -50,18 +99,41 @@ public class TSReader extends FileReader {
      */
     private void readData(){
         try{
-            this.data = new byte[reader.available()];
-            this.reader.read(this.data);
+            //available() is the file size for file streams, anything it missed is picked up by readAllBytes
+            byte[] data = new byte[reader.available()];
+            int    read = reader.readNBytes(data, 0, data.length);
+            byte[] rest = reader.readAllBytes();
+
+            if(read < data.length || rest.length > 0){
+                byte[] all = Arrays.copyOf(data, read + rest.length);
+                System.arraycopy(rest, 0, all, read, rest.length);
+                data = all;
+            }
+
+            setBuffer(ByteBuffer.wrap(data));
         }catch(Exception error){
             Logger.log(LogLevel.ERROR, getClass().getSimpleName(), error);
         }
     }
 
+    /**
+     * Store the file contents, compressed files keep their blocks and are decompressed when first needed
+     * @param raw raw file contents, null if the file couldn't be read
+     */
+    private void setBuffer(ByteBuffer raw){
+        boolean compressed = raw != null && TSBlocks.isCompressed(raw);
+
+        this.blocks = compressed ? TSBlocks.read(raw) : null;
+        this.buffer = compressed ? null : raw;
+        this.data   = buffer != null && buffer.hasArray() ? buffer.array() : null;
+        this.index  = null;
+    }
+
     /**Byte**/
     public static byte         readByte        (byte[] src, int pointer){ return src[pointer]; }
     public static byte[]       readBytes       (byte[] src, int pointer, int length){
         byte[] dest = new byte[length];
-        for (int i = 0; i < length; i++) dest[i] = readByte(src, pointer + i);
+        System.arraycopy(src, pointer, dest, 0, length);
         return dest;
     }
 
@@ -69,7 +141,7 @@ public class TSReader extends FileReader {
     public static short        readShort       (byte[] src, int pointer){ return (short)((src[pointer] & 0xff) << 8 | (src[pointer + 1] & 0xff)); }
     public static short[]      readShorts      (byte[] src, int pointer, int length){
         short[] dest = new short[length];
-        for (int i = 0; i < length; i++){ dest[i] = readShort(src, pointer); pointer += TSDataType.getSize(TSDataType.SHORT); }
+        ByteBuffer.wrap(src, pointer, length * TSDataType.getSize(TSDataType.SHORT)).asShortBuffer().get(dest);
         return dest;
     }
 
@@ -77,15 +149,15 @@ public class TSReader extends FileReader {
     public static int          readInt         (byte[] src, int pointer){ return (int)((src[pointer] & 0xff) << 24 | (src[pointer + 1] & 0xff) << 16 | (src[pointer + 2] & 0xff) << 8 | (src[pointer + 3] & 0xff)); }
     public static int[]        readInts        (byte[] src, int pointer, int length){
         int[] dest = new int[length];
-        for (int i = 0; i < length; i++){ dest[i] = readInt(src, pointer); pointer += TSDataType.getSize(TSDataType.INTEGER); }
+        ByteBuffer.wrap(src, pointer, length * TSDataType.getSize(TSDataType.INTEGER)).asIntBuffer().get(dest);
         return dest;
     }
 
     /**Long**/
-    public static long         readLong        (byte[] src, int pointer){ return (long)((src[pointer] & 0xff) << 56 | (src[pointer + 1] & 0xff) << 48 | (src[pointer + 2] & 0xff) << 40 | (src[pointer + 3] & 0xff) << 32 | (src[pointer + 4] & 0xff) << 24 | (src[pointer + 5] & 0xff) << 16 | (src[pointer + 6] & 0xff) << 8 | (src[pointer + 7] & 0xff)); }
+    public static long         readLong        (byte[] src, int pointer){ return (long)(src[pointer] & 0xff) << 56 | (long)(src[pointer + 1] & 0xff) << 48 | (long)(src[pointer + 2] & 0xff) << 40 | (long)(src[pointer + 3] & 0xff) << 32 | (long)(src[pointer + 4] & 0xff) << 24 | (src[pointer + 5] & 0xff) << 16 | (src[pointer + 6] & 0xff) << 8 | (src[pointer + 7] & 0xff); }
     public static long[]       readLongs       (byte[] src, int pointer, int length){
         long[] dest = new long[length];
-        for (int i = 0; i < length; i++){ dest[i] = readLong(src, pointer); pointer += TSDataType.getSize(TSDataType.LONG); }
+        ByteBuffer.wrap(src, pointer, length * TSDataType.getSize(TSDataType.LONG)).asLongBuffer().get(dest);
         return dest;
     }
 
@@ -93,7 +165,7 @@ public class TSReader extends FileReader {
     public static float        readFloat       (byte[] src, int pointer){ return Float.intBitsToFloat(readInt(src, pointer)); }
     public static float[]      readFloats      (byte[] src, int pointer, int length){
         float[] dest = new float[length];
-        for (int i = 0; i < length; i++){ dest[i] = readFloat(src, pointer); pointer += TSDataType.getSize(TSDataType.FLOAT); }
+        ByteBuffer.wrap(src, pointer, length * TSDataType.getSize(TSDataType.FLOAT)).asFloatBuffer().get(dest);
         return dest;
     }
 
@@ -101,7 +173,7 @@ public class TSReader extends FileReader {
     public static double       readDouble      (byte[] src, int pointer){ return Double.longBitsToDouble(readLong(src, pointer)); }
     public static double[]     readDoubles     (byte[] src, int pointer, int length){
         double[] dest = new double[length];
-        for (int i = 0; i < length; i++){ dest[i] = readDouble(src, pointer); pointer += TSDataType.getSize(TSDataType.DOUBLE); }
+        ByteBuffer.wrap(src, pointer, length * TSDataType.getSize(TSDataType.DOUBLE)).asDoubleBuffer().get(dest);
         return dest;
     }
 
@@ -117,7 +189,7 @@ public class TSReader extends FileReader {
     public static char         readChar        (byte[] src, int pointer){ return (char)((src[pointer] & 0xff) << 8 | (src[pointer + 1] & 0xff)); }
     public static char[]       readChars       (byte[] src, int pointer, int length){
         char[] dest = new char[length];
-        for (int i = 0; i < length; i++){ dest[i] = readChar(src, pointer); pointer += TSDataType.getSize(TSDataType.CHAR); }
+        ByteBuffer.wrap(src, pointer, length * TSDataType.getSize(TSDataType.CHAR)).asCharBuffer().get(dest);
         return dest;
     }
 
@@ -131,6 +203,14 @@ public class TSReader extends FileReader {
 
     public static String       readString      (byte[] src, int pointer, int length){ return new String(src, pointer, length); }
 
+    /**VarInt - unsigned, 7 bits per byte with the high bit set on every byte but the last**/
+    public static int          readVarInt      (byte[] src, int pointer){
+        int value = 0, shift = 0;
+        byte b;
+        do{ b = src[pointer++]; value |= (b & 0x7f) << shift; shift += 7; }while(b < 0);
+        return value;
+    }
+
     /**Vector2**/
     public static Vector2      readVector2     (byte[] src, int pointer){ return new Vector2(readFloat(src, pointer), readFloat(src, pointer + TSDataType.getSize(TSDataType.FLOAT))); }
     public static Vector2[]    readVector2s    (byte[] src, int pointer, int length){
@@ -205,7 +285,176 @@ public class TSReader extends FileReader {
         return dest;
     }
 
+    /**ByteBuffer**/
+    //Same layout as the byte array readers, reading with absolute gets so the buffer's position is never touched
+    //Buffers have to be big endian, which is the default for both wrapped and mapped buffers
+
+    public static byte         readByte        (ByteBuffer src, int pointer){ return src.get(pointer); }
+    public static byte[]       readBytes       (ByteBuffer src, int pointer, int length){
+        byte[] dest = new byte[length];
+        src.duplicate().position(pointer).get(dest);
+        return dest;
+    }
+
+    public static short        readShort       (ByteBuffer src, int pointer){ return src.getShort(pointer); }
+    public static short[]      readShorts      (ByteBuffer src, int pointer, int length){
+        short[] dest = new short[length];
+        src.duplicate().position(pointer).asShortBuffer().get(dest);
+        return dest;
+    }
+
+    public static int          readInt         (ByteBuffer src, int pointer){ return src.getInt(pointer); }
+    public static int[]        readInts        (ByteBuffer src, int pointer, int length){
+        int[] dest = new int[length];
+        src.duplicate().position(pointer).asIntBuffer().get(dest);
+        return dest;
+    }
+
+    public static long         readLong        (ByteBuffer src, int pointer){ return src.getLong(pointer); }
+    public static long[]       readLongs       (ByteBuffer src, int pointer, int length){
+        long[] dest = new long[length];
+        src.duplicate().position(pointer).asLongBuffer().get(dest);
+        return dest;
+    }
+
+    public static float        readFloat       (ByteBuffer src, int pointer){ return src.getFloat(pointer); }
+    public static float[]      readFloats      (ByteBuffer src, int pointer, int length){
+        float[] dest = new float[length];
+        src.duplicate().position(pointer).asFloatBuffer().get(dest);
+        return dest;
+    }
+
+    public static double       readDouble      (ByteBuffer src, int pointer){ return src.getDouble(pointer); }
+    public static double[]     readDoubles     (ByteBuffer src, int pointer, int length){
+        double[] dest = new double[length];
+        src.duplicate().position(pointer).asDoubleBuffer().get(dest);
+        return dest;
+    }
+
+    public static boolean      readBoolean     (ByteBuffer src, int pointer){ return src.get(pointer) != 0; }
+    public static boolean[]    readBooleans    (ByteBuffer src, int pointer, int length){
+        boolean[] dest = new boolean[length];
+        for (int i = 0; i < length; i++){ dest[i] = readBoolean(src, pointer); pointer += TSDataType.getSize(TSDataType.BOOLEAN); }
+        return dest;
+    }
+
+    public static char         readChar        (ByteBuffer src, int pointer){ return src.getChar(pointer); }
+    public static char[]       readChars       (ByteBuffer src, int pointer, int length){
+        char[] dest = new char[length];
+        src.duplicate().position(pointer).asCharBuffer().get(dest);
+        return dest;
+    }
+
+    public static String       readString      (ByteBuffer src, int pointer){ return String.valueOf(readChars(src, pointer + TSDataType.getSize(TSDataType.SHORT), readShort(src, pointer))); }
+    public static String[]     readStrings     (ByteBuffer src, int pointer, int length){
+        String[] dest = new String[length];
+        for (int i = 0; i < length; i++){ dest[i] = readString(src, pointer); pointer += TSDataType.getSize(TSDataType.SHORT) + ((TSDataType.getSize(TSDataType.STRING) * dest[i].length())); }
+        return dest;
+    }
+
+    public static String       readString      (ByteBuffer src, int pointer, int length){ return new String(readBytes(src, pointer, length)); }
+
+    public static int          readVarInt      (ByteBuffer src, int pointer){
+        int value = 0, shift = 0;
+        byte b;
+        do{ b = src.get(pointer++); value |= (b & 0x7f) << shift; shift += 7; }while(b < 0);
+        return value;
+    }
+
+    public static Vector2      readVector2     (ByteBuffer src, int pointer){ return new Vector2(readFloat(src, pointer), readFloat(src, pointer + 4)); }
+    public static Vector2[]    readVector2s    (ByteBuffer src, int pointer, int length){
+        Vector2[] dest = new Vector2[length];
+        for (int i = 0; i < length; i++){ dest[i] = readVector2(src, pointer); pointer += TSDataType.getSize(TSDataType.VECTOR2); }
+        return dest;
+    }
+
+    public static Vector3      readVector3     (ByteBuffer src, int pointer){ return new Vector3(readFloat(src, pointer), readFloat(src, pointer + 4), readFloat(src, pointer + 8)); }
+    public static Vector3[]    readVector3s    (ByteBuffer src, int pointer, int length){
+        Vector3[] dest = new Vector3[length];
+        for (int i = 0; i < length; i++){ dest[i] = readVector3(src, pointer); pointer += TSDataType.getSize(TSDataType.VECTOR3); }
+        return dest;
+    }
+
+    public static Vector4      readVector4     (ByteBuffer src, int pointer){ return new Vector4(readFloat(src, pointer), readFloat(src, pointer + 4), readFloat(src, pointer + 8), readFloat(src, pointer + 12)); }
+    public static Vector4[]    readVector4s    (ByteBuffer src, int pointer, int length){
+        Vector4[] dest = new Vector4[length];
+        for (int i = 0; i < length; i++){ dest[i] = readVector4(src, pointer); pointer += TSDataType.getSize(TSDataType.VECTOR4); }
+        return dest;
+    }
+
+    public static Quaternion   readQuaternion (ByteBuffer src, int pointer){ return new Quaternion(readFloat(src, pointer), readFloat(src, pointer + 4), readFloat(src, pointer + 8), readFloat(src, pointer + 12)); }
+    public static Quaternion[] readQuaternions(ByteBuffer src, int pointer, int length){
+        Quaternion[] dest = new Quaternion[length];
+        for (int i = 0; i < length; i++){ dest[i] = readQuaternion(src, pointer); pointer += TSDataType.getSize(TSDataType.QUATERNION); }
+        return dest;
+    }
+
+    public static Matrix2      readMatrix2     (ByteBuffer src, int pointer){
+        return new Matrix2(
+                readFloat(src, pointer     ), readFloat(src, pointer +  4),
+                readFloat(src, pointer +  8), readFloat(src, pointer + 12)
+        );
+    }
+    public static Matrix2[]    readMatrix2s    (ByteBuffer src, int pointer, int length){
+        Matrix2[] dest = new Matrix2[length];
+        for (int i = 0; i < length; i++){ dest[i] = readMatrix2(src, pointer); pointer += TSDataType.getSize(TSDataType.MATRIX2); }
+        return dest;
+    }
+
+    public static Matrix3      readMatrix3     (ByteBuffer src, int pointer){
+        return new Matrix3(
+                readFloat(src, pointer     ), readFloat(src, pointer +  4), readFloat(src, pointer +  8),
+                readFloat(src, pointer + 12), readFloat(src, pointer + 16), readFloat(src, pointer + 20),
+                readFloat(src, pointer + 24), readFloat(src, pointer + 28), readFloat(src, pointer + 32)
+        );
+    }
+    public static Matrix3[]    readMatrix3s    (ByteBuffer src, int pointer, int length){
+        Matrix3[] dest = new Matrix3[length];
+        for (int i = 0; i < length; i++){ dest[i] = readMatrix3(src, pointer); pointer += TSDataType.getSize(TSDataType.MATRIX3); }
+        return dest;
+    }
+
+    public static Matrix4      readMatrix4     (ByteBuffer src, int pointer){
+        return new Matrix4(
+                readFloat(src, pointer     ), readFloat(src, pointer +  4), readFloat(src, pointer +  8), readFloat(src, pointer + 12),
+                readFloat(src, pointer + 16), readFloat(src, pointer + 20), readFloat(src, pointer + 24), readFloat(src, pointer + 28),
+                readFloat(src, pointer + 32), readFloat(src, pointer + 36), readFloat(src, pointer + 40), readFloat(src, pointer + 44),
+                readFloat(src, pointer + 48), readFloat(src, pointer + 52), readFloat(src, pointer + 56), readFloat(src, pointer + 60)
+        );
+    }
+    public static Matrix4[]    readMatrix4s    (ByteBuffer src, int pointer, int length){
+        Matrix4[] dest = new Matrix4[length];
+        for (int i = 0; i < length; i++){ dest[i] = readMatrix4(src, pointer); pointer += TSDataType.getSize(TSDataType.MATRIX4); }
+        return dest;
+    }
+
     /**Getters**/
 
-    public byte[] getData(){ return data; }
+    public byte[] getData(){ getBuffer(); return data; }
+
+    /**
+     * Compressed files are decompressed the first time their buffer is asked for
+     * @return File contents, null if the file couldn't be read or decompressed
+     */
+    public ByteBuffer getBuffer(){
+        if(buffer == null && blocks != null){
+            byte[] decompressed = blocks.decompress(ForkJoinPool.commonPool());
+            if(decompressed != null){
+                this.buffer = ByteBuffer.wrap(decompressed);
+                this.data   = decompressed;
+            }
+            this.blocks = null;     //Only tried once, errors have been logged
+        }
+        return buffer;
+    }
+
+    /**
+     * Compressed files that haven't been decompressed read their index straight out of the blocks
+     * @return Index of the file's database, null if it was written without one
+     */
+    public TSIndex getIndex(){
+        if(index == null && buffer != null) index = TSIndex.read(buffer);
+        if(index == null && blocks != null) index = TSIndex.read(blocks);
+        return index;
+    }
 }
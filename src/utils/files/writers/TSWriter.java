@@ -9,26 +9,86 @@ import utils.maths.matrices.Quaternion;
 import utils.maths.vectors.Vector2;
 import utils.maths.vectors.Vector3;
 import utils.maths.vectors.Vector4;
+import utils.serialisation.compression.TSBlocks;
+import utils.serialisation.compression.TSCodec;
 import utils.serialisation.dataObjects.TSArray;
+import utils.serialisation.dataObjects.TSBase;
 import utils.serialisation.dataObjects.TSDatabase;
 import utils.serialisation.dataObjects.TSField;
+import utils.serialisation.dataObjects.TSIndex;
+import utils.serialisation.dataObjects.TSNames;
 import utils.serialisation.dataObjects.TSObject;
 import utils.serialisation.types.TSDataType;
 
-import java.io.BufferedOutputStream;
-import java.io.FileOutputStream;
-
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams a TSDatabase into a file through a fixed size buffer
+ * The database is never serialised into one array, so memory use doesn't grow with the size of the save
+ */
 public class TSWriter extends FileWriter {
     public static final byte[] HEADER  = "TSDB".getBytes();
-    public static final short  VERSION = 0x0103; //[MAJOR][MINOR]
+    public static final short  VERSION = 0x0105; //[MAJOR][MINOR]
+    public static final short  INLINE_VERSION = 0x0104;    //Last version storing every name inline, see TSNames
+
+    public static final int BUFFER_SIZE = 64 * 1024;    //Bytes buffered before being written to the file
+
+    private FileChannel      channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);        //Reused for every write, big endian like the format
+    private long             flushed;                                          //Bytes of the database stream flushed so far
+
+    /**Compression, each flush of the buffer becomes one block**/
+    private TSCodec codec;                  //Null when writing uncompressed
+    private byte[]  compressed;             //Reused block output
+    private int[]   blockLengths;           //Compressed length of each block
+    private int[]   blockSizes;             //Uncompressed length of each block
+    private int     blockCount;
+
+    /**Name table, built before each database is written when names are stored in a table**/
+    private boolean               tableNames;
+    private final Map<String, Integer> nameIndices = new HashMap<>();  //Name -> index in the table
+    private final List<byte[]>    nameData    = new ArrayList<>();      //Names in table order
+    private int[]                 objectSizes = new int[16];            //Size of every object as written, in write order
+    private int                   objectCount;
+    private int                   objectCursor;
 
-    private BufferedOutputStream stream;
+    public void createFile(String file){ createFile(file, null); }
 
-    public void createFile(String file){
+    /**
+     * Create a compressed file, see {@link TSBlocks} for the layout
+     * Blocks are compressed independently so they can be decompressed in parallel when the file is read
+     * @param file file path
+     * @param codec codec to compress blocks with, null to write uncompressed
+     */
+    public void createFile(String file, TSCodec codec){
         this.fileName = file;
 
         try{
-            stream = new BufferedOutputStream(new FileOutputStream(file));
+            channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            flushed = 0;
+            buffer.clear();
+
+            this.codec      = codec;
+            this.blockCount = 0;
+            if(codec != null){
+                if(compressed == null || compressed.length < codec.maxCompressedLength(BUFFER_SIZE)) compressed = new byte[codec.maxCompressedLength(BUFFER_SIZE)];
+                if(blockLengths == null){
+                    blockLengths = new int[16];
+                    blockSizes   = new int[16];
+                }
+
+                ByteBuffer header = ByteBuffer.allocate(TSBlocks.HEADER_SIZE).put(TSBlocks.HEADER).putShort(VERSION).put(codec.getID());
+                write(header.flip());
+            }
         }catch(Exception error){
             Logger.log(LogLevel.ERROR, getClass().getSimpleName(), "Error creating writer for file: " + this.fileName);
             Logger.log(LogLevel.ERROR, getClass().getSimpleName(), error);
@@ -36,9 +96,25 @@ public class TSWriter extends FileWriter {
         }
     }
 
-    public void writeDatabaseToFile(TSDatabase database){
+    public void writeDatabaseToFile(TSDatabase database){ writeDatabaseToFile(database, false); }
+
+    /**
+     * Write a database to the file
+     * @param database database to write
+     * @param index True to append a TSIndex so single objects can be read without loading the whole database
+     */
+    public void writeDatabaseToFile(TSDatabase database, boolean index){ writeDatabaseToFile(database, index, true); }
+
+    /**
+     * Write a database to the file
+     * @param database database to write
+     * @param index True to append a TSIndex so single objects can be read without loading the whole database
+     * @param names True to write every name once in a TSNames table (version 1.5), false to store names inline (version 1.4)
+     */
+    public void writeDatabaseToFile(TSDatabase database, boolean index, boolean names){
         try{
-            stream.write(writeDatabase(database));
+            writeDatabase(database, index, names);
+            flush();
         }catch(Exception error){
             Logger.log(LogLevel.ERROR, getClass().getSimpleName(), "Error writing data to file: " + this.fileName);
             Logger.log(LogLevel.ERROR, getClass().getSimpleName(), error);
@@ -47,120 +123,465 @@ public class TSWriter extends FileWriter {
     }
 
     /**
-     * Convert database into serialised byte array
+     * Stream database into the file
+     * The database size is back-patched with the amount of bytes actually written
      * @param database Database class
-     * @return byte array
+     * @param index True to append a TSIndex after the database
+     * @param names True to write names in a TSNames table
      */
-    private byte[] writeDatabase(TSDatabase database){
-        byte[] data = new byte[database.getSize()];
-        int pointer = 0;
+    private void writeDatabase(TSDatabase database, boolean index, boolean names) throws IOException {
+        //Version 1.4 counts objects in a short, a wrapped count would read back as an empty database
+        if(!names && database.getObjects().size() > TSDatabase.MAX_INLINE_OBJECTS)
+            throw new IOException("Database holds " + database.getObjects().size() + " objects, at most " + TSDatabase.MAX_INLINE_OBJECTS + " can be written without a name table");
+
+        long start = position();
+
+        //Names are collected and object sizes measured up front, so every size is known before it's written
+        tableNames = names;
+        //getSize() measures the current version's int object count, version 1.4 writes a short
+        long expected = names ? measure(database) : database.getSize() - TSDataType.getSize(TSDataType.INTEGER) + TSDataType.getSize(TSDataType.SHORT);
+
+        //Always written in the current version, whatever version the database was loaded from
+        put(database.getHeader());
+        putShort(names ? VERSION : INLINE_VERSION);
+        put(TSDatabase.CONTAINER_TYPE);
+        putShort(database.getNameLength());
+        put(database.getNameData());
+        long sizePosition = position();
+        putInt((int)expected);
+
+        if(names){
+            putInt(nameData.size());
+            for(byte[] name : nameData){
+                putShort((short)name.length);
+                put(name);
+            }
+        }
+
+        int[]  offsets = index ? new int [database.getObjects().size()] : null;
+        long[] ids     = index ? new long[database.getObjects().size()] : null;
+
+        if(names) putInt(database.getObjectCount());
+        else      putShort((short)database.getObjectCount());
+        for(int i = 0; i < database.getObjects().size(); i++){
+            TSObject object = database.getObjects().get(i);
+            if(index){
+                offsets[i] = (int)(position() - start);
+                ids[i]     = TSIndex.getID(object);
+            }
+            writeObject(object);
+        }
 
-        pointer = writeBytes(data, pointer, database.getHeader());
-        pointer = writeBytes(data, pointer, database.getVersion());
-        pointer = writeBytes(data, pointer, TSDatabase.CONTAINER_TYPE);
-        pointer = writeBytes(data, pointer, database.getNameLength());
-        pointer = writeBytes(data, pointer, database.getNameData());
-        pointer = writeBytes(data, pointer, database.getSize());
+        long size = position() - start;
+        if(size > Integer.MAX_VALUE){
+            Logger.log(LogLevel.WARNING, getClass().getSimpleName(), "Database is larger than its size field can hold (" + size + " bytes): " + this.fileName);
+            return;
+        }
+        if(size != expected)
+            patchInt(sizePosition, (int)size);
 
-        pointer = writeBytes(data, pointer, database.getObjectCount());
-        for(TSObject object : database.getObjects())
-            pointer = writeObject(data, pointer, object);
+        if(index) writeIndex(offsets, ids);
+    }
 
-        return data;
+    /**
+     * Stream a database index into the file, straight after the database
+     * @param offsets offset of each top level object
+     * @param ids "ID" field of each top level object
+     */
+    private void writeIndex(int[] offsets, long[] ids) throws IOException {
+        put(TSIndex.CONTAINER_TYPE);
+        putInt(offsets.length);
+        for(int  offset : offsets) putInt(offset);
+        for(long id     : ids)     putLong(id);
     }
 
     /**
-     * Write database object into byte array
-     * @param data byte array
-     * @param pointer byte array pointer
-     * @param object object to write into byte array
-     * @return pointer value
+     * Stream database object into the file
+     * @param object object to write
      */
-    private int writeObject(byte[] data, int pointer, TSObject object){
-        pointer = writeBytes(data, pointer, TSObject.CONTAINER_TYPE);
-        pointer = writeBytes(data, pointer, object.getNameLength());
-        pointer = writeBytes(data, pointer, object.getNameData());
-        pointer = writeBytes(data, pointer, object.getSize());
+    private void writeObject(TSObject object) throws IOException {
+        put(TSObject.CONTAINER_TYPE);
+        putName(object);
+        putInt(tableNames ? objectSizes[objectCursor++] : object.getSize());
 
-        pointer = writeBytes(data, pointer, object.getObjectCount());
+        putShort(object.getObjectCount());
         for(TSObject obj : object.getObjects().values())
-            pointer = writeObject(data, pointer, obj);
+            writeObject(obj);
 
-        pointer = writeBytes(data, pointer, object.getFieldCount());
+        putShort(object.getFieldCount());
         for(TSField field : object.getFields().values())
-            pointer = writeField(data, pointer, field);
+            writeField(field);
 
-        pointer = writeBytes(data, pointer, object.getArrayCount());
+        putShort(object.getArrayCount());
         for(TSArray array : object.getArrays().values())
-            pointer = writeArray(data, pointer, array);
+            writeArray(array);
+    }
 
-        return pointer;
+    /**
+     * Stream database field into the file
+     * @param field field to write
+     */
+    private void writeField(TSField field) throws IOException {
+        put(TSField.CONTAINER_TYPE);
+        putName(field);
+        putInt(getWrittenSize(field));
+        put(field.getDataType());
+        put(field.getData());
     }
 
     /**
-     * Write database field into byte array
-     * @param data byte array
-     * @param pointer byte array pointer
-     * @param field field to write into byte array
-     * @return pointer value
+     * Stream database array into the file
+     * @param array array to write
      */
-    private int writeField(byte[] data, int pointer, TSField field){
-        pointer = writeBytes(data, pointer, TSField.CONTAINER_TYPE);
-        pointer = writeBytes(data, pointer, field.getNameLength());
-        pointer = writeBytes(data, pointer, field.getNameData());
-        pointer = writeBytes(data, pointer, field.getSize());
-        pointer = writeBytes(data, pointer, field.getDataType());
-        pointer = writeBytes(data, pointer, field.getData());
+    private void writeArray(TSArray array) throws IOException {
+        put(TSArray.CONTAINER_TYPE);
+        putName(array);
+        putInt(getWrittenSize(array));
+        put(array.getDataType());
+        putInt(array.getDataCount());
+
+        //Packed vectors, quaternions and matrices are already in serialised order
+        if(array.isPacked()){
+            putFloats(array.getPackedData());
+            return;
+        }
 
-        return pointer;
+        switch(array.getDataType()){
+            case TSDataType.BYTE:       put(array.getByteData());                                                      break;
+            case TSDataType.SHORT:      putShorts(array.getShortData());                                               break;
+            case TSDataType.INTEGER:    putInts(array.getIntData());                                                   break;
+            case TSDataType.LONG:       putLongs(array.getLongData());                                                 break;
+            case TSDataType.FLOAT:      putFloats(array.getFloatData());                                               break;
+            case TSDataType.DOUBLE:     putDoubles(array.getDoubleData());                                             break;
+            case TSDataType.BOOLEAN:    for(boolean    value : array.getBooleanData())    put(value ? (byte)1 : (byte)0); break;
+            case TSDataType.CHAR:       putChars(array.getCharData());                                                 break;
+            case TSDataType.STRING:     for(String     value : array.getStringData())     putString(value);            break;
+            case TSDataType.VECTOR2:    for(Vector2    value : array.getVector2Data())    putVector2(value);           break;
+            case TSDataType.VECTOR3:    for(Vector3    value : array.getVector3Data())    putVector3(value);           break;
+            case TSDataType.VECTOR4:    for(Vector4    value : array.getVector4Data())    putVector4(value);           break;
+            case TSDataType.QUATERNION: for(Quaternion value : array.getQuaternionData()) putQuaternion(value);        break;
+            case TSDataType.MATRIX2:    for(Matrix2    value : array.getMatrix2Data())    putMatrix2(value);           break;
+            case TSDataType.MATRIX3:    for(Matrix3    value : array.getMatrix3Data())    putMatrix3(value);           break;
+            case TSDataType.MATRIX4:    for(Matrix4    value : array.getMatrix4Data())    putMatrix4(value);           break;
+        }
+    }
+
+    /**Name table**/
+
+    /**
+     * Build the name table of a database and measure the size of every object with its names in the table
+     * @param database database about to be written
+     * @return Size of the database as written
+     */
+    private long measure(TSDatabase database){
+        nameIndices.clear();
+        nameData.clear();
+        objectCount  = 0;
+        objectCursor = 0;
+
+        long size = 0;
+        for(TSObject object : database.getObjects()) size += measure(object);
+
+        size += database.getHeader().length                + //HEADER
+                TSDataType.getSize(TSDataType.SHORT)        + //VERSION
+                TSDataType.getSize(TSDataType.BYTE)         + //CONTAINER_TYPE
+                TSDataType.getSize(TSDataType.SHORT)        + //nameLength
+                database.getNameLength()                    + //name
+                TSDataType.getSize(TSDataType.INTEGER)      + //size
+                TSDataType.getSize(TSDataType.INTEGER)      + //name count
+                TSDataType.getSize(TSDataType.INTEGER)      ; //objectCount
+
+        for(byte[] name : nameData) size += TSDataType.getSize(TSDataType.SHORT) + name.length;
+        return size;
     }
 
     /**
-     * Write database array into byte array
-     * @param data byte array
-     * @param pointer byte array pointer
-     * @param array array to write into byte array
-     * @return array pointer
+     * Measure an object and its children, objects are visited in the order they're written
+     * @param object object to measure
+     * @return Size of the object as written
      */
-    private int writeArray(byte[] data, int pointer, TSArray array){
-        pointer = writeBytes(data, pointer, TSArray.CONTAINER_TYPE);
-        pointer = writeBytes(data, pointer, array.getNameLength());
-        pointer = writeBytes(data, pointer, array.getNameData());
-        pointer = writeBytes(data, pointer, array.getSize());
-        pointer = writeBytes(data, pointer, array.getDataType());
-        pointer = writeBytes(data, pointer, array.getDataCount());
+    private int measure(TSObject object){
+        if(objectCount == objectSizes.length) objectSizes = Arrays.copyOf(objectSizes, objectCount * 2);
+        int slot = objectCount++;
 
-        switch(array.getDataType()){
-            case TSDataType.BYTE:       pointer = writeBytes(data, pointer, array.getByteData());       break;
-            case TSDataType.SHORT:      pointer = writeBytes(data, pointer, array.getShortData());      break;
-            case TSDataType.INTEGER:    pointer = writeBytes(data, pointer, array.getIntData());        break;
-            case TSDataType.LONG:       pointer = writeBytes(data, pointer, array.getLongData());       break;
-            case TSDataType.FLOAT:      pointer = writeBytes(data, pointer, array.getFloatData());      break;
-            case TSDataType.DOUBLE:     pointer = writeBytes(data, pointer, array.getDoubleData());     break;
-            case TSDataType.BOOLEAN:    pointer = writeBytes(data, pointer, array.getBooleanData());    break;
-            case TSDataType.CHAR:       pointer = writeBytes(data, pointer, array.getCharData());       break;
-            case TSDataType.STRING:     pointer = writeBytes(data, pointer, array.getStringData());     break;
-            case TSDataType.VECTOR2:    pointer = writeBytes(data, pointer, array.getVector2Data());    break;
-            case TSDataType.VECTOR3:    pointer = writeBytes(data, pointer, array.getVector3Data());    break;
-            case TSDataType.VECTOR4:    pointer = writeBytes(data, pointer, array.getVector4Data());    break;
-            case TSDataType.QUATERNION: pointer = writeBytes(data, pointer, array.getQuaternionData()); break;
-            case TSDataType.MATRIX2:    pointer = writeBytes(data, pointer, array.getMatrix2Data());    break;
-            case TSDataType.MATRIX3:    pointer = writeBytes(data, pointer, array.getMatrix3Data());    break;
-            case TSDataType.MATRIX4:    pointer = writeBytes(data, pointer, array.getMatrix4Data());    break;
+        int size = TSDataType.getSize(TSDataType.BYTE)        + //CONTAINER_TYPE
+                   TSNames.getVarIntSize(getNameIndex(object)) + //name
+                   TSDataType.getSize(TSDataType.INTEGER)     + //size
+                   TSDataType.getSize(TSDataType.SHORT) * 3;    //objectCount, fieldCount, arrayCount
+
+        for(TSObject obj   : object.getObjects().values()) size += measure(obj);
+        for(TSField  field : object.getFields() .values()) size += getWrittenSize(field);
+        for(TSArray  array : object.getArrays() .values()) size += getWrittenSize(array);
+
+        objectSizes[slot] = size;
+        return size;
+    }
+
+    /**
+     * @param item item to look up
+     * @return Index of the item's name in the table, added to the table if it isn't in it yet
+     */
+    private int getNameIndex(TSBase item){
+        Integer index = nameIndices.get(item.getName());
+        if(index == null){
+            index = nameData.size();
+            nameIndices.put(item.getName(), index);
+            nameData.add(item.getNameData());
         }
+        return index;
+    }
 
-        return pointer;
+    /**
+     * @param item field or array
+     * @return Size of the item as written, smaller than its size if its name is in the table
+     */
+    private int getWrittenSize(TSBase item){
+        if(!tableNames) return item.getSize();
+        return item.getSize() - TSDataType.getSize(TSDataType.SHORT) - item.getNameLength() + TSNames.getVarIntSize(getNameIndex(item));
+    }
+
+    private void putName(TSBase item) throws IOException {
+        if(tableNames){
+            putVarInt(getNameIndex(item));
+            return;
+        }
+
+        putShort(item.getNameLength());
+        put(item.getNameData());
     }
 
     public void close(){
         try{
-            stream.close();
+            if(codec != null && channel.isOpen()){
+                flush();
+                writeBlockTable();
+            }
+            channel.close();
         }catch(Exception error){
             Logger.log(LogLevel.ERROR, getClass().getSimpleName(), "Error closing writer for file: " + this.fileName);
             Logger.log(LogLevel.ERROR, getClass().getSimpleName(), error);
         }
     }
 
+    /**Streaming**/
+
+    /**
+     * @return Position in the file the next byte is written to
+     */
+    private long position(){ return flushed + buffer.position(); }
+
+    /**
+     * Make room for a value, writing out the buffer if it can't hold the value
+     * @param bytes size of the value in bytes, at most BUFFER_SIZE
+     */
+    private void ensure(int bytes) throws IOException {
+        if(buffer.remaining() < bytes) flush();
+    }
+
+    /**
+     * Write everything in the buffer to the file, as a single block when compressing
+     */
+    private void flush() throws IOException {
+        if(codec != null){
+            flushBlock();
+            return;
+        }
+
+        buffer.flip();
+        while(buffer.hasRemaining()) flushed += channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Compress everything in the buffer into a block and write it to the file
+     */
+    private void flushBlock() throws IOException {
+        int size = buffer.position();
+        if(size == 0) return;
+
+        int length = codec.compress(buffer.array(), size, compressed);
+        write(ByteBuffer.wrap(compressed, 0, length));
+
+        if(blockCount == blockLengths.length){
+            blockLengths = Arrays.copyOf(blockLengths, blockCount * 2);
+            blockSizes   = Arrays.copyOf(blockSizes  , blockCount * 2);
+        }
+        blockLengths[blockCount] = length;
+        blockSizes  [blockCount] = size;
+        blockCount++;
+
+        flushed += size;
+        buffer.clear();
+    }
+
+    /**
+     * Write the block table of a compressed file, once every block has been written
+     */
+    private void writeBlockTable() throws IOException {
+        ByteBuffer table = ByteBuffer.allocate((blockCount * 2 + 1) * Integer.BYTES);
+        table.asIntBuffer().put(blockLengths, 0, blockCount).put(blockSizes, 0, blockCount).put(blockCount);
+        write(table);
+    }
+
+    /**
+     * Write a buffer straight to the file, bypassing the stream buffer
+     * @param data data to write
+     */
+    private void write(ByteBuffer data) throws IOException {
+        while(data.hasRemaining()) channel.write(data);
+    }
+
+    /**
+     * Overwrite an int that has already been streamed, in the buffer if it's still there or otherwise in the file
+     * @param position position of the int in the file
+     * @param value new value
+     */
+    private void patchInt(long position, int value) throws IOException {
+        if(position >= flushed){
+            buffer.putInt((int)(position - flushed), value);
+            return;
+        }
+        if(codec != null){
+            Logger.log(LogLevel.WARNING, getClass().getSimpleName(), "Value at " + position + " is in a block that has already been compressed and can't be patched: " + this.fileName);
+            return;
+        }
+
+        ByteBuffer patch = ByteBuffer.allocate(TSDataType.getSize(TSDataType.INTEGER)).putInt(0, value);
+        while(patch.hasRemaining()) channel.write(patch, position + patch.position());
+    }
+
+    private void put(byte value) throws IOException { ensure(Byte.BYTES); buffer.put(value); }
+
+    private void put(byte[] values) throws IOException {
+        int offset = 0;
+        while(offset < values.length){
+            if(!buffer.hasRemaining()) flush();
+
+            int length = Math.min(buffer.remaining(), values.length - offset);
+            buffer.put(values, offset, length);
+            offset += length;
+        }
+    }
+
+    private void putShort (short  value) throws IOException { ensure(Short.BYTES);     buffer.putShort(value);  }
+    private void putInt   (int    value) throws IOException { ensure(Integer.BYTES);   buffer.putInt(value);    }
+    private void putLong  (long   value) throws IOException { ensure(Long.BYTES);      buffer.putLong(value);   }
+    private void putFloat (float  value) throws IOException { ensure(Float.BYTES);     buffer.putFloat(value);  }
+    private void putDouble(double value) throws IOException { ensure(Double.BYTES);    buffer.putDouble(value); }
+    private void putChar  (char   value) throws IOException { ensure(Character.BYTES); buffer.putChar(value);   }
+
+    private void putVarInt(int value) throws IOException {
+        ensure(TSNames.getVarIntSize(value));
+        while((value & ~0x7f) != 0){
+            buffer.put((byte)((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte)value);
+    }
+
+    /**
+     * Bulk array writes, each chunk that fits the buffer is copied through a typed view of the buffer
+     */
+    private void putShorts(short[] values) throws IOException {
+        int offset = 0;
+        while(offset < values.length){
+            ensure(Short.BYTES);
+
+            int length = Math.min(buffer.remaining() / Short.BYTES, values.length - offset);
+            buffer.asShortBuffer().put(values, offset, length);
+            buffer.position(buffer.position() + length * Short.BYTES);
+            offset += length;
+        }
+    }
+
+    private void putInts(int[] values) throws IOException {
+        int offset = 0;
+        while(offset < values.length){
+            ensure(Integer.BYTES);
+
+            int length = Math.min(buffer.remaining() / Integer.BYTES, values.length - offset);
+            buffer.asIntBuffer().put(values, offset, length);
+            buffer.position(buffer.position() + length * Integer.BYTES);
+            offset += length;
+        }
+    }
+
+    private void putLongs(long[] values) throws IOException {
+        int offset = 0;
+        while(offset < values.length){
+            ensure(Long.BYTES);
+
+            int length = Math.min(buffer.remaining() / Long.BYTES, values.length - offset);
+            buffer.asLongBuffer().put(values, offset, length);
+            buffer.position(buffer.position() + length * Long.BYTES);
+            offset += length;
+        }
+    }
+
+    private void putFloats(float[] values) throws IOException {
+        int offset = 0;
+        while(offset < values.length){
+            ensure(Float.BYTES);
+
+            int length = Math.min(buffer.remaining() / Float.BYTES, values.length - offset);
+            buffer.asFloatBuffer().put(values, offset, length);
+            buffer.position(buffer.position() + length * Float.BYTES);
+            offset += length;
+        }
+    }
+
+    private void putDoubles(double[] values) throws IOException {
+        int offset = 0;
+        while(offset < values.length){
+            ensure(Double.BYTES);
+
+            int length = Math.min(buffer.remaining() / Double.BYTES, values.length - offset);
+            buffer.asDoubleBuffer().put(values, offset, length);
+            buffer.position(buffer.position() + length * Double.BYTES);
+            offset += length;
+        }
+    }
+
+    private void putChars(char[] values) throws IOException {
+        int offset = 0;
+        while(offset < values.length){
+            ensure(Character.BYTES);
+
+            int length = Math.min(buffer.remaining() / Character.BYTES, values.length - offset);
+            buffer.asCharBuffer().put(values, offset, length);
+            buffer.position(buffer.position() + length * Character.BYTES);
+            offset += length;
+        }
+    }
+
+    private void putString(String value) throws IOException {
+        putShort((short)value.length());
+        for(int i = 0; i < value.length(); i++) putChar(value.charAt(i));
+    }
+
+    private void putVector2(Vector2 value) throws IOException { putFloat(value.getX()); putFloat(value.getY()); }
+    private void putVector3(Vector3 value) throws IOException { putFloat(value.getX()); putFloat(value.getY()); putFloat(value.getZ()); }
+    private void putVector4(Vector4 value) throws IOException { putFloat(value.getX()); putFloat(value.getY()); putFloat(value.getZ()); putFloat(value.getW()); }
+    private void putQuaternion(Quaternion value) throws IOException { putFloat(value.getX()); putFloat(value.getY()); putFloat(value.getZ()); putFloat(value.getW()); }
+
+    private void putMatrix2(Matrix2 value) throws IOException {
+        putFloat(value.m00()); putFloat(value.m01());
+        putFloat(value.m10()); putFloat(value.m11());
+    }
+
+    private void putMatrix3(Matrix3 value) throws IOException {
+        putFloat(value.m00()); putFloat(value.m01()); putFloat(value.m02());
+        putFloat(value.m10()); putFloat(value.m11()); putFloat(value.m12());
+        putFloat(value.m20()); putFloat(value.m21()); putFloat(value.m22());
+    }
+
+    private void putMatrix4(Matrix4 value) throws IOException {
+        putFloat(value.m00()); putFloat(value.m01()); putFloat(value.m02()); putFloat(value.m03());
+        putFloat(value.m10()); putFloat(value.m11()); putFloat(value.m12()); putFloat(value.m13());
+        putFloat(value.m20()); putFloat(value.m21()); putFloat(value.m22()); putFloat(value.m23());
+        putFloat(value.m30()); putFloat(value.m31()); putFloat(value.m32()); putFloat(value.m33());
+    }
+
     /*Byte*/
 
     /**
@@ -187,8 +608,8 @@ public class TSWriter extends FileWriter {
     public static int writeBytes(byte[] dest, int pointer, byte[] values){
         if(dest.length < pointer + (TSDataType.getSize(TSDataType.BYTE) * values.length)) return pointer;
 
-        for(byte value : values) pointer = writeBytes(dest, pointer, value);
-        return pointer;
+        System.arraycopy(values, 0, dest, pointer, values.length);
+        return pointer + values.length;
     }
 
     /*Short*/
@@ -218,8 +639,8 @@ public class TSWriter extends FileWriter {
     public static int writeBytes(byte[] dest, int pointer, short[] values){
         if(dest.length < pointer + (TSDataType.getSize(TSDataType.SHORT) * values.length)) return pointer;
 
-        for(short value : values) pointer = writeBytes(dest, pointer, value);
-        return pointer;
+        ByteBuffer.wrap(dest, pointer, TSDataType.getSize(TSDataType.SHORT) * values.length).asShortBuffer().put(values);
+        return pointer + TSDataType.getSize(TSDataType.SHORT) * values.length;
     }
 
     /*Integer*/
@@ -251,8 +672,8 @@ public class TSWriter extends FileWriter {
     public static int writeBytes(byte[] dest, int pointer, int[] values){
         if(dest.length < pointer + (TSDataType.getSize(TSDataType.INTEGER) * values.length)) return pointer;
 
-        for(int value : values) pointer = writeBytes(dest, pointer, value);
-        return pointer;
+        ByteBuffer.wrap(dest, pointer, TSDataType.getSize(TSDataType.INTEGER) * values.length).asIntBuffer().put(values);
+        return pointer + TSDataType.getSize(TSDataType.INTEGER) * values.length;
     }
 
     /*Long*/
@@ -288,8 +709,8 @@ public class TSWriter extends FileWriter {
     public static int writeBytes(byte[] dest, int pointer, long[] values){
         if(dest.length < pointer + (TSDataType.getSize(TSDataType.LONG) * values.length)) return pointer;
 
-        for(long value : values) pointer = writeBytes(dest, pointer, value);
-        return pointer;
+        ByteBuffer.wrap(dest, pointer, TSDataType.getSize(TSDataType.LONG) * values.length).asLongBuffer().put(values);
+        return pointer + TSDataType.getSize(TSDataType.LONG) * values.length;
     }
 
     /*Float*/
@@ -317,8 +738,8 @@ public class TSWriter extends FileWriter {
     public static int writeBytes(byte[] dest, int pointer, float[] values){
         if(dest.length < pointer + (TSDataType.getSize(TSDataType.FLOAT) * values.length)) return pointer;
 
-        for(float value : values) pointer = writeBytes(dest, pointer, value);
-        return pointer;
+        ByteBuffer.wrap(dest, pointer, TSDataType.getSize(TSDataType.FLOAT) * values.length).asFloatBuffer().put(values);
+        return pointer + TSDataType.getSize(TSDataType.FLOAT) * values.length;
     }
 
     /*Double*/
@@ -346,8 +767,8 @@ public class TSWriter extends FileWriter {
     public static int writeBytes(byte[] dest, int pointer, double[] values){
         if(dest.length < pointer + (TSDataType.getSize(TSDataType.DOUBLE) * values.length)) return pointer;
 
-        for(double value : values) pointer = writeBytes(dest, pointer, value);
-        return pointer;
+        ByteBuffer.wrap(dest, pointer, TSDataType.getSize(TSDataType.DOUBLE) * values.length).asDoubleBuffer().put(values);
+        return pointer + TSDataType.getSize(TSDataType.DOUBLE) * values.length;
     }
 
     /*Boolean*/
@@ -406,8 +827,8 @@ public class TSWriter extends FileWriter {
     public static int writeBytes(byte[] dest, int pointer, char[] values){
         if(dest.length < pointer + (TSDataType.getSize(TSDataType.CHAR) * values.length)) return pointer;
 
-        for(char value : values) pointer = writeBytes(dest, pointer, value);
-        return pointer;
+        ByteBuffer.wrap(dest, pointer, TSDataType.getSize(TSDataType.CHAR) * values.length).asCharBuffer().put(values);
+        return pointer + TSDataType.getSize(TSDataType.CHAR) * values.length;
     }
 
     /*String*/
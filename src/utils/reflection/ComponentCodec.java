@@ -0,0 +1,254 @@
+package utils.reflection;
+
+import ecs.components.Component;
+import ecs.components.ComponentSerializer;
+import utils.files.readers.TSReader;
+import utils.logging.LogLevel;
+import utils.logging.Logger;
+import utils.maths.matrices.Matrix2;
+import utils.maths.matrices.Matrix3;
+import utils.maths.matrices.Matrix4;
+import utils.maths.matrices.Quaternion;
+import utils.maths.vectors.Vector2;
+import utils.maths.vectors.Vector3;
+import utils.maths.vectors.Vector4;
+import utils.serialisation.dataObjects.TSArray;
+import utils.serialisation.dataObjects.TSBase;
+import utils.serialisation.dataObjects.TSField;
+import utils.serialisation.dataObjects.TSObject;
+import utils.serialisation.types.TSDataType;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Objects;
+
+/**
+ * Serialisation plan of a component class, resolved once per class and shared by saving and loading
+ * Every instance field declared by the class or its superclasses is resolved into a chain of MethodHandles reading
+ * the field straight into its TSField or TSArray and one reading stored data straight into the field, so saving or
+ * loading a component doesn't go through reflection, boxing or type switches again
+ */
+public class ComponentCodec {
+    private static final ClassValue<ComponentCodec> CODECS = new ClassValue<ComponentCodec>() {
+        @Override
+        protected ComponentCodec computeValue(Class<?> type){ return new ComponentCodec(type); }
+    };
+
+    private final FieldCodec[] fields;
+
+    private ComponentCodec(Class<?> type){
+        List<FieldCodec> fields = new ArrayList<>();
+        Set<String>      names  = new HashSet<>();
+        for(Class<?> c = type; isStored(c, type); c = c.getSuperclass()){
+            for(Field f : c.getDeclaredFields()){
+                if(Modifier.isStatic(f.getModifiers()) || f.isSynthetic()) continue;
+                if(!names.add(f.getName())) continue;   //Hidden by a subclass field of the same name
+
+                FieldCodec field = FieldCodec.create(f);
+                if(field != null) fields.add(field);
+            }
+        }
+        this.fields = fields.toArray(new FieldCodec[0]);
+    }
+
+    /**
+     * Fields are stored from the component class up to Component, whose ID is stored separately
+     * A superclass that serialises itself (like ColumnComponent) stores its own fields, so the walk stops there too
+     * @param c class in the hierarchy of the component
+     * @param type component class
+     * @return True if the fields declared by c are stored
+     */
+    private static boolean isStored(Class<?> c, Class<?> type){
+        if(c == null || c == Object.class || c == Component.class) return false;
+        return c == type || !Arrays.asList(c.getInterfaces()).contains(ComponentSerializer.class);
+    }
+
+    /**
+     * @param type component class
+     * @return Plan of the class, created the first time it's asked for
+     */
+    public static ComponentCodec of(Class<?> type){ return CODECS.get(type); }
+
+    /**
+     * Store every field of a component into a TSObject
+     * @param component component to store
+     * @param dest TSObject of the component
+     */
+    public void serialise(Object component, TSObject dest){
+        for(FieldCodec field : fields){
+            TSBase b = field.save(component);
+            if(b != null) dest.add(b);
+        }
+    }
+
+    /**
+     * Store every field of a component into a list, for components that build their own list of fields
+     * @param component component to store
+     * @param dest list to add the component's fields to
+     */
+    public void serialise(Object component, List<TSBase> dest){
+        for(FieldCodec field : fields){
+            TSBase b = field.save(component);
+            if(b != null) dest.add(b);
+        }
+    }
+
+    /**
+     * Load every stored field of a TSObject into a component, fields that weren't stored are left as they are
+     * @param source TSObject of the component
+     * @param component component to load into
+     */
+    public void deserialise(TSObject source, Object component){
+        for(FieldCodec field : fields) field.load(source, component);
+    }
+
+    /**
+     * Handles of a single field, each composed once from the field's accessor and the matching ThunderStorm
+     * factory or reader so saving and loading a field is a single call
+     */
+    private static final class FieldCodec {
+        private static final MethodHandle ENCODE;       //(String, Object)TSBase
+        private static final MethodHandle IS_NULL;      //(Object)boolean
+        static {
+            try{
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                ENCODE  = lookup.findStatic(TSTypes.class, "encode", MethodType.methodType(TSBase.class, String.class, Object.class));
+                IS_NULL = lookup.findStatic(Objects.class, "isNull", MethodType.methodType(boolean.class, Object.class));
+            }catch(ReflectiveOperationException error){
+                throw new ExceptionInInitializerError(error);
+            }
+        }
+
+        //Java type, TSField/TSArray factory name and TSReader method name of each TSDataType
+        private static final Class<?>[] TYPES     = { null, byte.class, short.class, int.class, long.class, float.class, double.class, boolean.class, char.class, String.class, Vector2.class, Vector3.class, Vector4.class, Quaternion.class, Matrix2.class, Matrix3.class, Matrix4.class };
+        private static final String[]   FACTORIES = { null, "Byte", "Short", "Integer", "Long", "Float", "Double", "Boolean", "Char", "String", "Vector2", "Vector3", "Vector4", "Quaternion", "Matrix2", "Matrix3", "Matrix4" };
+        private static final String[]   READERS   = { null, "readByte", "readShort", "readInt", "readLong", "readFloat", "readDouble", "readBoolean", "readChar", "readString", "readVector2", "readVector3", "readVector4", "readQuaternion", "readMatrix2", "readMatrix3", "readMatrix4" };
+
+        private final String                  name;
+        private final byte                    dataType;    //Stored type of the field, UNKNOWN if it's an array or depends on the value
+        private final boolean                 list;        //True if stored arrays are converted to Lists when loading, the field can hold an ArrayList
+        private final TSTypes.Decoder<Object> decoder;     //Decoder registered for the field's type, null if stored data is assigned as it is
+        private final MethodHandle            saver;       //(Object component)TSBase, returns null for null values
+        private final MethodHandle            reader;      //(Object component, byte[] data)void, reads data stored as dataType, null if dataType is UNKNOWN
+        private final MethodHandle            setter;      //(Object component, Object value)void
+
+        private FieldCodec(String name, byte dataType, boolean list, TSTypes.Decoder<Object> decoder, MethodHandle saver, MethodHandle reader, MethodHandle setter){
+            this.name     = name;
+            this.dataType = dataType;
+            this.list     = list;
+            this.decoder  = decoder;
+            this.saver    = saver;
+            this.reader   = reader;
+            this.setter   = setter;
+        }
+
+        /**
+         * @param f declared field
+         * @return codec of the field, null if it can't be accessed
+         */
+        static FieldCodec create(Field f){
+            try{
+                //Accessibility is only changed once, handles keep the access after it
+                f.setAccessible(true);
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+                Class<?>     type   = f.getType();
+                String       name   = f.getName();
+                MethodHandle getter = lookup.unreflectGetter(f).asType(MethodType.methodType(type, Object.class));
+                MethodHandle setter = lookup.unreflectSetter(f).asType(MethodType.methodType(void.class, Object.class, type));
+
+                byte dataType = TSDataType.of(type.isArray() ? type.getComponentType() : type);
+
+                //Arrays are only stored directly if their elements are exactly the stored type, int[] but not Integer[]
+                boolean array = type.isArray() && dataType != TSDataType.UNKNOWN && type.getComponentType() == TYPES[dataType];
+                if(type.isArray() && !array) dataType = TSDataType.UNKNOWN;
+
+                //Getter followed by the TSField or TSArray factory of its type
+                //Anything else is stored by the class of its value
+                MethodHandle factory;
+                if(dataType == TSDataType.UNKNOWN){
+                    factory = MethodHandles.insertArguments(ENCODE, 0, name).asType(MethodType.methodType(TSBase.class, type));
+                }else{
+                    Class<?> container = array ? TSArray.class : TSField.class;
+                    Class<?> stored    = array ? type : TYPES[dataType];
+                    factory = lookup.findStatic(container, FACTORIES[dataType], MethodType.methodType(container, String.class, stored));
+                    factory = MethodHandles.insertArguments(factory, 0, name).asType(MethodType.methodType(TSBase.class, type));
+
+                    //Null values aren't stored
+                    if(!type.isPrimitive()){
+                        factory = MethodHandles.guardWithTest(IS_NULL.asType(MethodType.methodType(boolean.class, type)),
+                                                              MethodHandles.dropArguments(MethodHandles.constant(TSBase.class, null), 0, type),
+                                                              factory);
+                    }
+                }
+                MethodHandle saver = MethodHandles.filterReturnValue(getter, factory);
+
+                //TSReader method of the stored type followed by the setter
+                MethodHandle reader = null;
+                if(!array && dataType != TSDataType.UNKNOWN){
+                    reader = lookup.findStatic(TSReader.class, READERS[dataType], MethodType.methodType(TYPES[dataType], byte[].class, int.class));
+                    reader = MethodHandles.insertArguments(reader, 1, 0).asType(MethodType.methodType(type, byte[].class));
+                    reader = MethodHandles.filterArguments(setter, 1, reader);
+                }else dataType = TSDataType.UNKNOWN;
+
+                return new FieldCodec(name, dataType, type.isAssignableFrom(ArrayList.class), TSTypes.getDecoder(type), saver, reader,
+                                      setter.asType(MethodType.methodType(void.class, Object.class, Object.class)));
+            }catch(Exception error){
+                Logger.log(LogLevel.ERROR, ComponentCodec.class.getSimpleName(), "Couldn't access field " + f.getName() + "!");
+                Logger.log(LogLevel.ERROR, ComponentCodec.class.getSimpleName(), error);
+                return null;
+            }
+        }
+
+        /**
+         * @param component component to read from
+         * @return TSBase holding the field's value, null if the value is null or can't be stored
+         */
+        TSBase save(Object component){
+            try{
+                return (TSBase)saver.invokeExact(component);
+            }catch(Throwable error){
+                Logger.log(LogLevel.ERROR, ComponentCodec.class.getSimpleName(), "Couldn't read field " + name + "!");
+                Logger.log(LogLevel.ERROR, ComponentCodec.class.getSimpleName(), error);
+                return null;
+            }
+        }
+
+        /**
+         * @param source TSObject of the component
+         * @param component component to write into
+         */
+        void load(TSObject source, Object component){
+            try{
+                TSField field = source.getFields().get(name);
+                if(field != null){
+                    //Fields stored as their declared type are read straight from their data
+                    if(field.getDataType() == dataType) reader.invokeExact(component, field.getData());
+                    else                                setter.invokeExact(component, decode(field.getDataObject()));
+                    return;
+                }
+
+                TSArray array = source.getArrays().get(name);
+                if(array != null){
+                    //Check if field is a List
+                    //If yes convert array data into List data
+                    //If no assign array data
+                    setter.invokeExact(component, list ? (Object)TSTypes.toList(array.getDataObject()) : decode(array.getDataObject()));
+                }
+            }catch(Throwable error){
+                Logger.log(LogLevel.ERROR, ComponentCodec.class.getSimpleName(), "Couldn't set field " + name + "!");
+                Logger.log(LogLevel.ERROR, ComponentCodec.class.getSimpleName(), error);
+            }
+        }
+
+        private Object decode(Object data){ return decoder != null ? decoder.decode(data) : data; }
+    }
+}
@@ -3,11 +3,61 @@ package utils.reflection;
 import utils.logging.LogLevel;
 import utils.logging.Logger;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.util.List;
 
 public class ReflectionTools {
+    //Constructor of each class bound to default arguments, resolved the first time an instance is created
+    private static final ClassValue<MethodHandle> CONSTRUCTORS = new ClassValue<MethodHandle>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type){
+            Constructor<?>[] constructors = type.getConstructors();
+            if(constructors.length == 0 || Modifier.isAbstract(type.getModifiers())){
+                Logger.log(LogLevel.ERROR, ReflectionTools.class.getSimpleName(), type.getName() + " can't be created, it has no public constructor or is abstract!");
+                return null;
+            }
+
+            try{
+                //Prefer the constructor with the fewest parameters, the rest are given default arguments
+                //getConstructors() has no fixed order, so ties are broken by parameter type names
+                Constructor<?> constructor = constructors[0];
+                for(Constructor<?> c : constructors) if(compare(c, constructor) < 0) constructor = c;
+
+                MethodHandle handle = MethodHandles.publicLookup().unreflectConstructor(constructor);
+                Class<?>[] parameters = constructor.getParameterTypes();
+                for(int i = parameters.length - 1; i >= 0; i--)
+                    handle = MethodHandles.insertArguments(handle, i, Array.get(Array.newInstance(parameters[i], 1), 0));
+
+                return handle.asType(MethodType.methodType(Object.class));
+            }catch(Exception error){
+                Logger.log(LogLevel.ERROR, ReflectionTools.class.getSimpleName(), "Couldn't find a public constructor of " + type.getName() + "!");
+                Logger.log(LogLevel.ERROR, ReflectionTools.class.getSimpleName(), error);
+                return null;
+            }
+        }
+    };
+
+    /**
+     * Order constructors by parameter count, then by the names of their parameter types
+     * @return Negative if a comes before b
+     */
+    private static int compare(Constructor<?> a, Constructor<?> b){
+        if(a.getParameterCount() != b.getParameterCount()) return Integer.compare(a.getParameterCount(), b.getParameterCount());
+
+        Class<?>[] pa = a.getParameterTypes(), pb = b.getParameterTypes();
+        for(int i = 0; i < pa.length; i++){
+            int order = pa[i].getName().compareTo(pb[i].getName());
+            if(order != 0) return order;
+        }
+        return 0;
+    }
+
     /**
      * Reads an Object's field and returns the value
      * @param origin Object with field value we want
@@ -46,6 +96,25 @@ public class ReflectionTools {
         }
     }
 
+    /**
+     * Creates a new object of the given Class instance using its no-args constructor, or its first public constructor
+     * given null, zero or false arguments, the constructor is only looked up once per class
+     * @param clazz Class we want to make an instance of
+     * @return New instance of given Class, null if it couldn't be created
+     */
+    public static Object createObject(Class<?> clazz){
+        MethodHandle constructor = CONSTRUCTORS.get(clazz);
+        if(constructor == null) return null;
+
+        try{
+            return (Object)constructor.invokeExact();
+        }catch(Throwable error){
+            Logger.log(LogLevel.ERROR, ReflectionTools.class.getSimpleName(), error);
+        }
+
+        return null;
+    }
+
     /**
      * Creates a new object of the given Class instance using the Constructor matching the given args
      * @param clazz Class we want to make an instance of
@@ -0,0 +1,290 @@
+package utils.reflection;
+
+import utils.maths.matrices.Matrix2;
+import utils.maths.matrices.Matrix3;
+import utils.maths.matrices.Matrix4;
+import utils.maths.matrices.Quaternion;
+import utils.maths.vectors.Vector2;
+import utils.maths.vectors.Vector3;
+import utils.maths.vectors.Vector4;
+import utils.serialisation.dataObjects.TSArray;
+import utils.serialisation.dataObjects.TSBase;
+import utils.serialisation.dataObjects.TSField;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry mapping Java types to the ThunderStorm items they're stored as
+ * Values are stored by the encoder registered for their class or the closest registered superclass or interface,
+ * resolved once per class. Types that aren't stored as one of the built-in types can register a decoder converting
+ * the stored data back when loading
+ * Types should be registered before saving or loading, component codecs keep the decoders they were created with
+ */
+public class TSTypes {
+    /**
+     * Stores a value into a TSField or TSArray
+     */
+    public interface Encoder<T> {
+        /**
+         * @param name name of the value
+         * @param value value, never null
+         * @return TSBase holding the value, null if it can't be stored
+         */
+        TSBase encode(String name, T value);
+    }
+
+    /**
+     * Converts stored data into a value
+     */
+    public interface Decoder<T> {
+        /**
+         * @param data data object of the TSField or TSArray the value was stored as
+         * @return value
+         */
+        T decode(Object data);
+    }
+
+    private static final Map<Class<?>, Encoder<?>> ENCODERS = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Decoder<?>> DECODERS = new ConcurrentHashMap<>();
+
+    //Lookups are recreated whenever a type is registered so classes resolved before are resolved again
+    private static volatile ClassValue<Encoder<Object>> encoders = createEncoders();
+    private static volatile ClassValue<Decoder<Object>> decoders = createDecoders();
+
+    //List element types and primitive array types, elements and arrays of other types are stored and loaded as they are
+    private static final Map<Class<?>, Encoder<List<?>>> LIST_ENCODERS = new HashMap<>();
+    private static final Map<Class<?>, Decoder<List<?>>> LIST_DECODERS = new HashMap<>();
+
+    static {
+        register(Byte.class,         TSField::Byte);
+        register(byte[].class,       TSArray::Byte);
+        register(Short.class,        TSField::Short);
+        register(short[].class,      TSArray::Short);
+        register(Integer.class,      TSField::Integer);
+        register(int[].class,        TSArray::Integer);
+        register(Long.class,         TSField::Long);
+        register(long[].class,       TSArray::Long);
+        register(Float.class,        TSField::Float);
+        register(float[].class,      TSArray::Float);
+        register(Double.class,       TSField::Double);
+        register(double[].class,     TSArray::Double);
+        register(Boolean.class,      TSField::Boolean);
+        register(boolean[].class,    TSArray::Boolean);
+        register(Character.class,    TSField::Char);
+        register(char[].class,       TSArray::Char);
+        register(String.class,       TSField::String);
+        register(String[].class,     TSArray::String);
+        register(Vector2.class,      TSField::Vector2);
+        register(Vector2[].class,    TSArray::Vector2);
+        register(Vector3.class,      TSField::Vector3);
+        register(Vector3[].class,    TSArray::Vector3);
+        register(Vector4.class,      TSField::Vector4);
+        register(Vector4[].class,    TSArray::Vector4);
+        register(Quaternion.class,   TSField::Quaternion);
+        register(Quaternion[].class, TSArray::Quaternion);
+        register(Matrix2.class,      TSField::Matrix2);
+        register(Matrix2[].class,    TSArray::Matrix2);
+        register(Matrix3.class,      TSField::Matrix3);
+        register(Matrix3[].class,    TSArray::Matrix3);
+        register(Matrix4.class,      TSField::Matrix4);
+        register(Matrix4[].class,    TSArray::Matrix4);
+        register(List.class,         TSTypes::encodeList, TSTypes::toList);
+
+        LIST_ENCODERS.put(Byte.class, (name, list) -> {
+            byte[] bytes = new byte[list.size()];
+            for(int i = 0; i < list.size(); i++) bytes[i] = (byte)list.get(i);
+            return TSArray.Byte(name, bytes);
+        });
+        LIST_ENCODERS.put(Short.class, (name, list) -> {
+            short[] shorts = new short[list.size()];
+            for(int i = 0; i < list.size(); i++) shorts[i] = (short)list.get(i);
+            return TSArray.Short(name, shorts);
+        });
+        LIST_ENCODERS.put(Integer.class, (name, list) -> {
+            int[] ints = new int[list.size()];
+            for(int i = 0; i < list.size(); i++) ints[i] = (int)list.get(i);
+            return TSArray.Integer(name, ints);
+        });
+        LIST_ENCODERS.put(Long.class, (name, list) -> {
+            long[] longs = new long[list.size()];
+            for(int i = 0; i < list.size(); i++) longs[i] = (long)list.get(i);
+            return TSArray.Long(name, longs);
+        });
+        LIST_ENCODERS.put(Float.class, (name, list) -> {
+            float[] floats = new float[list.size()];
+            for(int i = 0; i < list.size(); i++) floats[i] = (float)list.get(i);
+            return TSArray.Float(name, floats);
+        });
+        LIST_ENCODERS.put(Double.class, (name, list) -> {
+            double[] doubles = new double[list.size()];
+            for(int i = 0; i < list.size(); i++) doubles[i] = (double)list.get(i);
+            return TSArray.Double(name, doubles);
+        });
+        LIST_ENCODERS.put(Boolean.class, (name, list) -> {
+            boolean[] booleans = new boolean[list.size()];
+            for(int i = 0; i < list.size(); i++) booleans[i] = (boolean)list.get(i);
+            return TSArray.Boolean(name, booleans);
+        });
+        LIST_ENCODERS.put(Character.class, (name, list) -> {
+            char[] chars = new char[list.size()];
+            for(int i = 0; i < list.size(); i++) chars[i] = (char)list.get(i);
+            return TSArray.Char(name, chars);
+        });
+        LIST_ENCODERS.put(String.class,     (name, list) -> TSArray.String    (name, list.toArray(new String[0])));
+        LIST_ENCODERS.put(Vector2.class,    (name, list) -> TSArray.Vector2   (name, list.toArray(new Vector2[0])));
+        LIST_ENCODERS.put(Vector3.class,    (name, list) -> TSArray.Vector3   (name, list.toArray(new Vector3[0])));
+        LIST_ENCODERS.put(Vector4.class,    (name, list) -> TSArray.Vector4   (name, list.toArray(new Vector4[0])));
+        LIST_ENCODERS.put(Quaternion.class, (name, list) -> TSArray.Quaternion(name, list.toArray(new Quaternion[0])));
+        LIST_ENCODERS.put(Matrix2.class,    (name, list) -> TSArray.Matrix2   (name, list.toArray(new Matrix2[0])));
+        LIST_ENCODERS.put(Matrix3.class,    (name, list) -> TSArray.Matrix3   (name, list.toArray(new Matrix3[0])));
+        LIST_ENCODERS.put(Matrix4.class,    (name, list) -> TSArray.Matrix4   (name, list.toArray(new Matrix4[0])));
+
+        LIST_DECODERS.put(byte[].class, data -> {
+            List<Byte> bytes = new ArrayList<>();
+            for(byte b : (byte[])data) bytes.add(b);
+            return bytes;
+        });
+        LIST_DECODERS.put(short[].class, data -> {
+            List<Short> shorts = new ArrayList<>();
+            for(short s : (short[])data) shorts.add(s);
+            return shorts;
+        });
+        LIST_DECODERS.put(int[].class, data -> {
+            List<Integer> ints = new ArrayList<>();
+            for(int i : (int[])data) ints.add(i);
+            return ints;
+        });
+        LIST_DECODERS.put(long[].class, data -> {
+            List<Long> longs = new ArrayList<>();
+            for(long l : (long[])data) longs.add(l);
+            return longs;
+        });
+        LIST_DECODERS.put(float[].class, data -> {
+            List<Float> floats = new ArrayList<>();
+            for(float f : (float[])data) floats.add(f);
+            return floats;
+        });
+        LIST_DECODERS.put(double[].class, data -> {
+            List<Double> doubles = new ArrayList<>();
+            for(double d : (double[])data) doubles.add(d);
+            return doubles;
+        });
+        LIST_DECODERS.put(boolean[].class, data -> {
+            List<Boolean> booleans = new ArrayList<>();
+            for(boolean bool : (boolean[])data) booleans.add(bool);
+            return booleans;
+        });
+        LIST_DECODERS.put(char[].class, data -> {
+            List<Character> chars = new ArrayList<>();
+            for(char c : (char[])data) chars.add(c);
+            return chars;
+        });
+    }
+
+    /**
+     * Register how values of a type are stored, replacing any encoder registered for the type
+     * @param type Java type, subclasses and implementations without their own encoder are stored with it too
+     * @param encoder encoder of the type
+     */
+    public static <T> void register(Class<T> type, Encoder<? super T> encoder){
+        ENCODERS.put(type, encoder);
+        encoders = createEncoders();
+    }
+
+    /**
+     * Register how values of a type are stored and loaded, replacing anything registered for the type
+     * @param type Java type
+     * @param encoder encoder of the type, subclasses and implementations without their own encoder are stored with it too
+     * @param decoder decoder of fields declared as exactly the type
+     */
+    public static <T> void register(Class<T> type, Encoder<? super T> encoder, Decoder<? extends T> decoder){
+        ENCODERS.put(type, encoder);
+        DECODERS.put(type, decoder);
+        encoders = createEncoders();
+        decoders = createDecoders();
+    }
+
+    /**
+     * Store a value by its runtime class
+     * @param name name of the value
+     * @param value value
+     * @return TSBase holding the value, null if the value is null or its class can't be stored
+     */
+    public static TSBase encode(String name, Object value){
+        if(value == null) return null;
+
+        Encoder<Object> encoder = encoders.get(value.getClass());
+        return encoder != null ? encoder.encode(name, value) : null;
+    }
+
+    /**
+     * @param type declared type of a field
+     * @return Decoder registered for the type, null if its stored data is loaded as it is
+     */
+    public static Decoder<Object> getDecoder(Class<?> type){ return decoders.get(type); }
+
+    /**
+     * Convert array data into a List
+     * @param data array data
+     * @return List holding the array's elements, null if the data isn't an array
+     */
+    public static List<?> toList(Object data){
+        if(data instanceof Object[]) return new ArrayList<>(Arrays.asList((Object[])data));
+
+        Decoder<List<?>> decoder = data != null ? LIST_DECODERS.get(data.getClass()) : null;
+        return decoder != null ? decoder.decode(data) : null;
+    }
+
+    /**
+     * Store a List as the array of its first element's type
+     * @param name name of the List
+     * @param list List
+     * @return TSArray holding the List, null if it's empty or its elements can't be stored
+     */
+    private static TSBase encodeList(String name, List<?> list){
+        if(list.isEmpty() || list.get(0) == null) return null;
+
+        Encoder<List<?>> encoder = LIST_ENCODERS.get(list.get(0).getClass());
+        return encoder != null ? encoder.encode(name, list) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ClassValue<Encoder<Object>> createEncoders(){
+        return new ClassValue<Encoder<Object>>() {
+            @Override
+            protected Encoder<Object> computeValue(Class<?> type){ return (Encoder<Object>)find(ENCODERS, type); }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ClassValue<Decoder<Object>> createDecoders(){
+        return new ClassValue<Decoder<Object>>() {
+            @Override
+            protected Decoder<Object> computeValue(Class<?> type){ return (Decoder<Object>)DECODERS.get(type); }
+        };
+    }
+
+    /**
+     * @param registered registered values
+     * @param type class
+     * @return Value registered for the class, its closest superclass or one of its interfaces, null if there's none
+     */
+    private static <V> V find(Map<Class<?>, V> registered, Class<?> type){
+        if(type == null) return null;
+
+        V value = registered.get(type);
+        if(value != null) return value;
+
+        for(Class<?> i : type.getInterfaces()){
+            value = find(registered, i);
+            if(value != null) return value;
+        }
+
+        return find(registered, type.getSuperclass());
+    }
+}
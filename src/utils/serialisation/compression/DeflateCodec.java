@@ -0,0 +1,64 @@
+package utils.serialisation.compression;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate (zlib) codec from java.util.zip, registered by default
+ */
+public class DeflateCodec implements TSCodec {
+    public static final byte ID = 1;
+
+    private final ThreadLocal<Deflater> deflaters;
+    private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(Inflater::new);
+
+    public DeflateCodec(){ this(Deflater.DEFAULT_COMPRESSION); }
+
+    /**
+     * @param level Deflater compression level, 0-9 or Deflater.DEFAULT_COMPRESSION
+     */
+    public DeflateCodec(int level){ this.deflaters = ThreadLocal.withInitial(() -> new Deflater(level)); }
+
+    @Override
+    public byte getID(){ return ID; }
+
+    @Override
+    public int maxCompressedLength(int length){
+        //zlib's compressBound plus the zlib header and checksum
+        return length + (length >> 12) + (length >> 14) + (length >> 25) + 13 + 6;
+    }
+
+    @Override
+    public int compress(byte[] src, int length, byte[] dest){
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        deflater.setInput(src, 0, length);
+        deflater.finish();
+
+        int compressed = 0;
+        while(!deflater.finished()) compressed += deflater.deflate(dest, compressed, dest.length - compressed);
+        return compressed;
+    }
+
+    @Override
+    public void decompress(ByteBuffer src, byte[] dest, int offset, int length) throws IOException {
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        inflater.setInput(src);
+
+        try{
+            int read = 0;
+            while(read < length && !inflater.finished()){
+                int inflated = inflater.inflate(dest, offset + read, length - read);
+                if(inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                read += inflated;
+            }
+            if(read != length) throw new IOException("Block decompressed to " + read + " bytes, expected " + length);
+        }catch(DataFormatException error){
+            throw new IOException(error);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package utils.serialisation.compression;
+
+import utils.files.readers.TSReader;
+import utils.logging.LogLevel;
+import utils.logging.Logger;
+import utils.Maths;
+import utils.serialisation.types.TSDataType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Block table of a compressed ThunderStorm file
+ * A compressed file holds the regular database stream (database and optional index) split into blocks that are
+ * compressed on their own, so blocks can be decompressed in parallel and a range of the database can be read by
+ * only decompressing the blocks it covers
+ *
+ * Layout - [HEADER][short VERSION][byte codec ID][block * count][int compressed length * count][int length * count][int count]
+ */
+public class TSBlocks {
+    public static final byte[] HEADER      = "TSDZ".getBytes();
+    public static final int    HEADER_SIZE = HEADER.length + TSDataType.getSize(TSDataType.SHORT) + TSDataType.getSize(TSDataType.BYTE);
+
+    private static final TSCodec[] CODECS = new TSCodec[256];   //Registered codecs indexed by ID
+    static { register(new DeflateCodec()); }
+
+    private final ByteBuffer data;
+    private final TSCodec    codec;
+    private final long[]     sources;           //Offset of each compressed block in the file
+    private final int[]      sourceLengths;     //Compressed length of each block
+    private final long[]     starts;            //Offset of each block in the decompressed database stream
+    private final int[]      lengths;           //Decompressed length of each block
+    private final long       size;              //Decompressed length of the whole stream
+
+    private TSBlocks(ByteBuffer data, TSCodec codec, int[] sourceLengths, int[] lengths){
+        this.data          = data;
+        this.codec         = codec;
+        this.sourceLengths = sourceLengths;
+        this.lengths       = lengths;
+        this.sources       = new long[lengths.length];
+        this.starts        = new long[lengths.length];
+
+        long source = HEADER_SIZE, start = 0;
+        for(int i = 0; i < lengths.length; i++){
+            sources[i] = source;
+            starts[i]  = start;
+            source += sourceLengths[i];
+            start  += lengths[i];
+        }
+        this.size = start;
+    }
+
+    /**
+     * Register a codec so files compressed with it can be read
+     * @param codec codec, replaces any codec registered with the same ID
+     */
+    public static synchronized void register(TSCodec codec){ CODECS[codec.getID() & 0xff] = codec; }
+
+    /**
+     * @param id codec ID stored in a compressed file
+     * @return Registered codec, null if none is registered with the ID
+     */
+    public static synchronized TSCodec getCodec(byte id){ return CODECS[id & 0xff]; }
+
+    /**
+     * @param data raw file data
+     * @return True if the data is a compressed ThunderStorm file
+     */
+    public static boolean isCompressed(ByteBuffer data){
+        if(data.limit() < HEADER_SIZE) return false;
+        return Maths.checkEqual(TSReader.readBytes(data, 0, HEADER.length), HEADER);
+    }
+
+    /**
+     * Read the block table of a compressed file
+     * @param data raw file data, either wrapping a byte array or mapped from a file
+     * @return block table, null if the data isn't compressed or its codec isn't registered
+     */
+    public static TSBlocks read(ByteBuffer data){
+        if(!isCompressed(data)) return null;
+
+        byte id = TSReader.readByte(data, HEADER_SIZE - TSDataType.getSize(TSDataType.BYTE));
+        TSCodec codec = getCodec(id);
+        if(codec == null){
+            Logger.log(LogLevel.ERROR, TSBlocks.class.getSimpleName(), "No codec registered for compressed data, codec ID: " + id);
+            return null;
+        }
+
+        //Block table is at the end of the file as it's only known once every block has been written
+        int pointer = data.limit() - TSDataType.getSize(TSDataType.INTEGER);
+        int count   = TSReader.readInt(data, pointer);
+        pointer -= count * TSDataType.getSize(TSDataType.INTEGER);
+        int[] lengths = TSReader.readInts(data, pointer, count);
+        pointer -= count * TSDataType.getSize(TSDataType.INTEGER);
+        int[] sourceLengths = TSReader.readInts(data, pointer, count);
+
+        return new TSBlocks(data, codec, sourceLengths, lengths);
+    }
+
+    /**
+     * Decompress a file if it's compressed
+     * @param data raw file data
+     * @return data itself if it isn't compressed, otherwise the decompressed database stream, null if decompression failed
+     */
+    public static ByteBuffer decompress(ByteBuffer data){ return decompress(data, ForkJoinPool.commonPool()); }
+
+    /**
+     * Decompress a file if it's compressed
+     * @param data raw file data
+     * @param pool pool to decompress blocks on
+     * @return data itself if it isn't compressed, otherwise the decompressed database stream, null if decompression failed
+     */
+    public static ByteBuffer decompress(ByteBuffer data, ForkJoinPool pool){
+        TSBlocks blocks = read(data);
+        if(blocks == null) return isCompressed(data) ? null : data;
+
+        byte[] decompressed = blocks.decompress(pool);
+        return decompressed != null ? ByteBuffer.wrap(decompressed) : null;
+    }
+
+    /**
+     * Decompress every block in parallel
+     * @param pool pool to decompress blocks on
+     * @return decompressed database stream, null if it's corrupt or too large for an array
+     */
+    public byte[] decompress(ForkJoinPool pool){
+        if(size > Integer.MAX_VALUE - 8){
+            Logger.log(LogLevel.ERROR, getClass().getSimpleName(), "Compressed data is too large to decompress into an array (" + size + " bytes)");
+            return null;
+        }
+
+        //One task per block, blocks are already sized to balance across workers
+        byte[] dest = new byte[(int)size];
+        List<Callable<Void>> tasks = new ArrayList<>(lengths.length);
+        for(int i = 0; i < lengths.length; i++){
+            int block = i;
+            tasks.add(() -> {
+                decompressBlock(block, dest, (int)starts[block]);
+                return null;
+            });
+        }
+
+        try{
+            for(Future<Void> task : pool.invokeAll(tasks)) task.get();
+        }catch(InterruptedException | ExecutionException error){
+            Logger.log(LogLevel.ERROR, getClass().getSimpleName(), error);
+            return null;
+        }
+        return dest;
+    }
+
+    /**
+     * Decompress a range of the database stream, only the blocks covering the range are decompressed
+     * @param offset offset in the decompressed stream
+     * @param length amount of bytes
+     * @return decompressed range, null if it's out of bounds or corrupt
+     */
+    public byte[] decompress(long offset, int length){
+        if(offset < 0 || length < 0 || offset + length > size){
+            Logger.log(LogLevel.ERROR, getClass().getSimpleName(), "Range [" + offset + ", " + (offset + length) + ") is outside of the decompressed data (" + size + " bytes)");
+            return null;
+        }
+
+        byte[] dest = new byte[length];
+        try{
+            long end = offset + length;
+            for(int i = findBlock(offset); i < lengths.length && starts[i] < end; i++){
+                long from = Math.max(offset, starts[i]);
+                long to   = Math.min(end   , starts[i] + lengths[i]);
+
+                if(from == starts[i] && to == starts[i] + lengths[i]){
+                    decompressBlock(i, dest, (int)(from - offset));     //Whole block is in range
+                }else{
+                    byte[] block = new byte[lengths[i]];
+                    decompressBlock(i, block, 0);
+                    System.arraycopy(block, (int)(from - starts[i]), dest, (int)(from - offset), (int)(to - from));
+                }
+            }
+        }catch(Exception error){
+            Logger.log(LogLevel.ERROR, getClass().getSimpleName(), error);
+            return null;
+        }
+        return dest;
+    }
+
+    /**
+     * @param offset offset in the decompressed stream
+     * @return Block holding the offset
+     */
+    public int findBlock(long offset){
+        int block = Arrays.binarySearch(starts, offset);
+        if(block >= 0){
+            while(block + 1 < lengths.length && starts[block + 1] == offset) block++;   //Skip empty blocks
+            return block;
+        }
+        return Math.max(0, -block - 2);
+    }
+
+    /**
+     * Decompress a single block
+     * @param block block index
+     * @param dest destination array
+     * @param offset offset in destination array
+     */
+    private void decompressBlock(int block, byte[] dest, int offset){
+        ByteBuffer source = data.duplicate();
+        source.limit((int)(sources[block] + sourceLengths[block])).position((int)sources[block]);
+
+        try{
+            codec.decompress(source, dest, offset, lengths[block]);
+        }catch(IOException error){
+            throw new UncheckedIOException("Corrupt block " + block, error);
+        }
+    }
+
+    /**Getters**/
+
+    public TSCodec getCodec(){ return codec; }
+    public int getBlockCount(){ return lengths.length; }
+    public long getBlockStart(int block){ return starts[block]; }
+    public int getBlockLength(int block){ return lengths[block]; }
+    public long getSize(){ return size; }
+}
@@ -0,0 +1,42 @@
+package utils.serialisation.compression;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Compression codec for the blocks of a compressed ThunderStorm file
+ * Codecs are looked up by ID when a file is read, register custom codecs with {@link TSBlocks#register(TSCodec)}
+ * Every block is compressed on its own, so codecs must be safe to use from several threads at once
+ */
+public interface TSCodec {
+
+    /**
+     * @return ID stored in compressed files, unique per codec
+     */
+    byte getID();
+
+    /**
+     * @param length uncompressed length of a block
+     * @return Largest compressed length the block can have
+     */
+    int maxCompressedLength(int length);
+
+    /**
+     * Compress a block
+     * @param src uncompressed data, starting at index 0
+     * @param length amount of bytes to compress
+     * @param dest destination array, at least maxCompressedLength(length) bytes long
+     * @return compressed length
+     */
+    int compress(byte[] src, int length, byte[] dest);
+
+    /**
+     * Decompress a block
+     * @param src compressed block, from position to limit
+     * @param dest destination array
+     * @param offset offset in destination array
+     * @param length uncompressed length of the block
+     * @throws IOException if the block is corrupt
+     */
+    void decompress(ByteBuffer src, byte[] dest, int offset, int length) throws IOException;
+}
@@ -13,29 +13,35 @@ import utils.maths.matrices.Matrix4;
 import utils.serialisation.types.TSContainerType;
 import utils.serialisation.types.TSDataType;
 
+import java.nio.ByteBuffer;
+
 public class TSArray extends TSBase {
     public static final byte CONTAINER_TYPE = TSContainerType.ARRAY;
 
     private byte     dataType;      //Byte representation of TSDataType
     private int      dataCount;     //Amount of items in array stored as a short
 
-    /**Only one of these arrays will be populated based on "dataType" variable**/
-    public byte[]       byteData;       //Raw byte array data
-    public short[]      shortData;      //Raw short array data
-    public int[]        intData;        //Raw int array data
-    public long[]       longData;       //Raw long array data
-    public float[]      floatData;      //Raw float array data
-    public double[]     doubleData;     //Raw double array data
-    public boolean[]    booleanData;    //Raw boolean array data
-    public char[]       charData;       //Raw char array data
-    public String[]     stringData;     //Raw String array data
-    public Vector2[]    vector2Data;    //Raw Vector2 array data
-    public Vector3[]    vector3Data;    //Raw Vector3 array data
-    public Vector4[]    vector4Data;    //Raw Vector4 array data
-    public Quaternion[] quaternionData; //Raw Quaternion array data
-    public Matrix2[]    matrix2Data;    //Raw Quaternion array data
-    public Matrix3[]    matrix3Data;    //Raw Quaternion array data
-    public Matrix4[]    matrix4Data;    //Raw Quaternion array data
+    /**Only one of these arrays will be populated based on "dataType" variable, read them through the getters**/
+    private byte[]       byteData;       //Raw byte array data
+    private short[]      shortData;      //Raw short array data
+    private int[]        intData;        //Raw int array data
+    private long[]       longData;       //Raw long array data
+    private float[]      floatData;      //Raw float array data
+    private double[]     doubleData;     //Raw double array data
+    private boolean[]    booleanData;    //Raw boolean array data
+    private char[]       charData;       //Raw char array data
+    private String[]     stringData;     //Raw String array data
+    private Vector2[]    vector2Data;    //Raw Vector2 array data
+    private Vector3[]    vector3Data;    //Raw Vector3 array data
+    private Vector4[]    vector4Data;    //Raw Vector4 array data
+    private Quaternion[] quaternionData; //Raw Quaternion array data
+    private Matrix2[]    matrix2Data;    //Raw Matrix2 array data
+    private Matrix3[]    matrix3Data;    //Raw Matrix3 array data
+    private Matrix4[]    matrix4Data;    //Raw Matrix4 array data
+
+    /**Vector, quaternion and matrix arrays can be held as packed floats instead, see Packed()**/
+    private float[]     packedData;     //getStride(dataType) floats per element, null when the array holds objects
+                                        //The object array of the type is filled from it the first time it's read
 
     private TSArray(){
         size += TSDataType.getSize(TSDataType.BYTE) + //dataType
@@ -298,10 +304,54 @@ public class TSArray extends TSBase {
         return array;
     }
 
+    /**
+     * Create a new TSArray holding a list of vectors, quaternions or matrices as one packed float array
+     * Serialises the same as an array of objects, but no object is created per element unless the array is read
+     * through one of the object getters such as getVector3Data()
+     * @param name Name of array
+     * @param dataType VECTOR2, VECTOR3, VECTOR4, QUATERNION, MATRIX2, MATRIX3 or MATRIX4
+     * @param data Packed float data, getStride(dataType) floats per element in the order they're serialised
+     * @return new TSArray, null if the data type can't be packed or the data doesn't fill whole elements
+     */
+    public static TSArray Packed(String name, byte dataType, float[] data){
+        int stride = getStride(dataType);
+        if(stride == 0 || data.length % stride != 0){
+            Logger.log(LogLevel.ERROR, TSArray.class.getSimpleName(), "Can't pack " + data.length + " floats as data type " + dataType + " for array: " + name);
+            return null;
+        }
+
+        TSArray array = new TSArray();
+        array.setName(name);
+        array.dataType   = dataType;
+        array.dataCount  = data.length / stride;
+        array.packedData = data;
+        array.size      += array.getDataSize();
+        return array;
+    }
+
+    /**
+     * @param dataType TSDataType
+     * @return Amount of floats in one element of a vector, quaternion or matrix type, 0 for any other type
+     */
+    public static int getStride(byte dataType){
+        switch(dataType){
+            case TSDataType.VECTOR2:
+            case TSDataType.VECTOR3:
+            case TSDataType.VECTOR4:
+            case TSDataType.QUATERNION:
+            case TSDataType.MATRIX2:
+            case TSDataType.MATRIX3:
+            case TSDataType.MATRIX4:    return TSDataType.getSize(dataType) / TSDataType.getSize(TSDataType.FLOAT);
+        }
+        return 0;
+    }
+
     /**
      * @return How large in bytes the data size is
      */
     private int getDataSize(){
+        if(packedData != null) return packedData.length * TSDataType.getSize(TSDataType.FLOAT);
+
         switch(dataType){
             case TSDataType.BYTE:       return byteData   .length    * TSDataType.getSize(TSDataType.BYTE);
             case TSDataType.SHORT:      return shortData  .length    * TSDataType.getSize(TSDataType.SHORT);
@@ -329,7 +379,24 @@ public class TSArray extends TSBase {
      * @param pointer current pointer position in byte array
      * @return a new TSArray
      */
-    public static TSArray deserialise(byte[] data, int pointer){
+    public static TSArray deserialise(byte[] data, int pointer){ return deserialise(ByteBuffer.wrap(data), pointer); }
+
+    /**
+     * Load a new TSArray from raw byte data
+     * @param data raw data, either wrapping a byte array or mapped from a file
+     * @param pointer current pointer position in byte array
+     * @return a new TSArray
+     */
+    public static TSArray deserialise(ByteBuffer data, int pointer){ return deserialise(data, pointer, null); }
+
+    /**
+     * Load a new TSArray from raw byte data
+     * @param data raw data, either wrapping a byte array or mapped from a file
+     * @param pointer current pointer position in byte array
+     * @param names name table of the database, null if names are stored inline
+     * @return a new TSArray
+     */
+    public static TSArray deserialise(ByteBuffer data, int pointer, TSNames names){
         //Get the container type
         //This should confirm we are trying to deserialise the correct field
         //Future iterations could probably do better error checking with this
@@ -349,15 +416,8 @@ public class TSArray extends TSBase {
         //Create return array
         TSArray array = new TSArray();
 
-        //Get the name length and then the name of the array
-        array.nameLength = TSReader.readShort(data, pointer);
-        pointer += TSDataType.getSize(TSDataType.SHORT);
-        array.name = TSReader.readString(data, pointer, array.nameLength).getBytes();
-        pointer += array.nameLength;
-
-        //Get the size (in bytes) of the array
-        array.size = TSReader.readInt(data, pointer);
-        pointer += TSDataType.getSize(TSDataType.INTEGER);
+        //Get the name and then the size (in bytes) of the array
+        pointer = array.readHeader(data, pointer, names);
 
         //Get what data type the field is (Byte, Short, Int, etc...)
         array.dataType = TSReader.readByte(data, pointer);
@@ -377,13 +437,14 @@ public class TSArray extends TSBase {
             case TSDataType.BOOLEAN:    array.booleanData    = TSReader.readBooleans   (data, pointer, array.dataCount); break;
             case TSDataType.CHAR:       array.charData       = TSReader.readChars      (data, pointer, array.dataCount); break;
             case TSDataType.STRING:     array.stringData     = TSReader.readStrings    (data, pointer, array.dataCount); break;
-            case TSDataType.VECTOR2:    array.vector2Data    = TSReader.readVector2s   (data, pointer, array.dataCount); break;
-            case TSDataType.VECTOR3:    array.vector3Data    = TSReader.readVector3s   (data, pointer, array.dataCount); break;
-            case TSDataType.VECTOR4:    array.vector4Data    = TSReader.readVector4s   (data, pointer, array.dataCount); break;
-            case TSDataType.QUATERNION: array.quaternionData = TSReader.readQuaternions(data, pointer, array.dataCount); break;
-            case TSDataType.MATRIX2:    array.matrix2Data    = TSReader.readMatrix2s   (data, pointer, array.dataCount); break;
-            case TSDataType.MATRIX3:    array.matrix3Data    = TSReader.readMatrix3s   (data, pointer, array.dataCount); break;
-            case TSDataType.MATRIX4:    array.matrix4Data    = TSReader.readMatrix4s   (data, pointer, array.dataCount); break;
+            //Vectors, quaternions and matrices are read as packed floats, objects are only created if they're asked for
+            case TSDataType.VECTOR2:
+            case TSDataType.VECTOR3:
+            case TSDataType.VECTOR4:
+            case TSDataType.QUATERNION:
+            case TSDataType.MATRIX2:
+            case TSDataType.MATRIX3:
+            case TSDataType.MATRIX4:    array.packedData     = TSReader.readFloats     (data, pointer, array.dataCount * getStride(array.dataType)); break;
         }
 
         pointer += array.dataCount * TSDataType.getSize(array.dataType);
@@ -408,13 +469,13 @@ public class TSArray extends TSBase {
             case TSDataType.BOOLEAN: return booleanData;
             case TSDataType.CHAR: return charData;
             case TSDataType.STRING: return stringData;
-            case TSDataType.VECTOR2: return vector2Data;
-            case TSDataType.VECTOR3: return vector3Data;
-            case TSDataType.VECTOR4: return vector4Data;
-            case TSDataType.QUATERNION: return quaternionData;
-            case TSDataType.MATRIX2: return matrix2Data;
-            case TSDataType.MATRIX3: return matrix3Data;
-            case TSDataType.MATRIX4: return matrix4Data;
+            case TSDataType.VECTOR2: return getVector2Data();
+            case TSDataType.VECTOR3: return getVector3Data();
+            case TSDataType.VECTOR4: return getVector4Data();
+            case TSDataType.QUATERNION: return getQuaternionData();
+            case TSDataType.MATRIX2: return getMatrix2Data();
+            case TSDataType.MATRIX3: return getMatrix3Data();
+            case TSDataType.MATRIX4: return getMatrix4Data();
             default: return null;
         }
     }
@@ -428,13 +489,119 @@ public class TSArray extends TSBase {
     public boolean[]    getBooleanData()   { return booleanData;    }
     public char[]       getCharData()      { return charData;       }
     public String[]     getStringData()    { return stringData;     }
-    public Vector2[]    getVector2Data()   { return vector2Data;    }
-    public Vector3[]    getVector3Data()   { return vector3Data;    }
-    public Vector4[]    getVector4Data()   { return vector4Data;    }
-    public Quaternion[] getQuaternionData(){ return quaternionData; }
-    public Matrix2[]    getMatrix2Data()   { return matrix2Data;    }
-    public Matrix3[]    getMatrix3Data()   { return matrix3Data;    }
-    public Matrix4[]    getMatrix4Data()   { return matrix4Data;    }
+
+    /**Vector, quaternion and matrix arrays held as packed floats create their objects on the first call, later calls share them**/
+    //The objects are a copy, changing them doesn't change the packed data that gets written
+    public Vector2[]    getVector2Data()   { if(vector2Data    == null && packedData != null && dataType == TSDataType.VECTOR2   ) vector2Data    = unpackVector2s();    return vector2Data;    }
+    public Vector3[]    getVector3Data()   { if(vector3Data    == null && packedData != null && dataType == TSDataType.VECTOR3   ) vector3Data    = unpackVector3s();    return vector3Data;    }
+    public Vector4[]    getVector4Data()   { if(vector4Data    == null && packedData != null && dataType == TSDataType.VECTOR4   ) vector4Data    = unpackVector4s();    return vector4Data;    }
+    public Quaternion[] getQuaternionData(){ if(quaternionData == null && packedData != null && dataType == TSDataType.QUATERNION) quaternionData = unpackQuaternions(); return quaternionData; }
+    public Matrix2[]    getMatrix2Data()   { if(matrix2Data    == null && packedData != null && dataType == TSDataType.MATRIX2   ) matrix2Data    = unpackMatrix2s();    return matrix2Data;    }
+    public Matrix3[]    getMatrix3Data()   { if(matrix3Data    == null && packedData != null && dataType == TSDataType.MATRIX3   ) matrix3Data    = unpackMatrix3s();    return matrix3Data;    }
+    public Matrix4[]    getMatrix4Data()   { if(matrix4Data    == null && packedData != null && dataType == TSDataType.MATRIX4   ) matrix4Data    = unpackMatrix4s();    return matrix4Data;    }
+
+    /**
+     * @return True if the array holds packed floats rather than objects
+     */
+    public boolean isPacked(){ return packedData != null; }
+
+    /**
+     * Packed floats of a vector, quaternion or matrix array, packed from the objects on every call if the array holds objects
+     * @return packed float data, null for any other data type
+     */
+    public float[] getPackedData(){
+        if(packedData != null || getStride(dataType) == 0) return packedData;
+
+        float[] packed = new float[dataCount * getStride(dataType)];
+        int i = 0;
+        switch(dataType){
+            case TSDataType.VECTOR2:    for(Vector2    v : vector2Data)   { packed[i++] = v.getX(); packed[i++] = v.getY(); } break;
+            case TSDataType.VECTOR3:    for(Vector3    v : vector3Data)   { packed[i++] = v.getX(); packed[i++] = v.getY(); packed[i++] = v.getZ(); } break;
+            case TSDataType.VECTOR4:    for(Vector4    v : vector4Data)   { packed[i++] = v.getX(); packed[i++] = v.getY(); packed[i++] = v.getZ(); packed[i++] = v.getW(); } break;
+            case TSDataType.QUATERNION: for(Quaternion q : quaternionData){ packed[i++] = q.getX(); packed[i++] = q.getY(); packed[i++] = q.getZ(); packed[i++] = q.getW(); } break;
+            case TSDataType.MATRIX2:
+                for(Matrix2 m : matrix2Data){
+                    packed[i++] = m.m00(); packed[i++] = m.m01();
+                    packed[i++] = m.m10(); packed[i++] = m.m11();
+                }
+                break;
+            case TSDataType.MATRIX3:
+                for(Matrix3 m : matrix3Data){
+                    packed[i++] = m.m00(); packed[i++] = m.m01(); packed[i++] = m.m02();
+                    packed[i++] = m.m10(); packed[i++] = m.m11(); packed[i++] = m.m12();
+                    packed[i++] = m.m20(); packed[i++] = m.m21(); packed[i++] = m.m22();
+                }
+                break;
+            case TSDataType.MATRIX4:
+                for(Matrix4 m : matrix4Data){
+                    packed[i++] = m.m00(); packed[i++] = m.m01(); packed[i++] = m.m02(); packed[i++] = m.m03();
+                    packed[i++] = m.m10(); packed[i++] = m.m11(); packed[i++] = m.m12(); packed[i++] = m.m13();
+                    packed[i++] = m.m20(); packed[i++] = m.m21(); packed[i++] = m.m22(); packed[i++] = m.m23();
+                    packed[i++] = m.m30(); packed[i++] = m.m31(); packed[i++] = m.m32(); packed[i++] = m.m33();
+                }
+                break;
+        }
+        return packed;
+    }
+
+    /**Object views of packed data**/
+
+    private Vector2[] unpackVector2s(){
+        Vector2[] dest = new Vector2[dataCount]; float[] p = packedData;
+        for(int i = 0, o = 0; i < dataCount; i++, o += 2) dest[i] = new Vector2(p[o], p[o + 1]);
+        return dest;
+    }
+
+    private Vector3[] unpackVector3s(){
+        Vector3[] dest = new Vector3[dataCount]; float[] p = packedData;
+        for(int i = 0, o = 0; i < dataCount; i++, o += 3) dest[i] = new Vector3(p[o], p[o + 1], p[o + 2]);
+        return dest;
+    }
+
+    private Vector4[] unpackVector4s(){
+        Vector4[] dest = new Vector4[dataCount]; float[] p = packedData;
+        for(int i = 0, o = 0; i < dataCount; i++, o += 4) dest[i] = new Vector4(p[o], p[o + 1], p[o + 2], p[o + 3]);
+        return dest;
+    }
+
+    private Quaternion[] unpackQuaternions(){
+        Quaternion[] dest = new Quaternion[dataCount]; float[] p = packedData;
+        for(int i = 0, o = 0; i < dataCount; i++, o += 4) dest[i] = new Quaternion(p[o], p[o + 1], p[o + 2], p[o + 3]);
+        return dest;
+    }
+
+    private Matrix2[] unpackMatrix2s(){
+        Matrix2[] dest = new Matrix2[dataCount]; float[] p = packedData;
+        for(int i = 0, o = 0; i < dataCount; i++, o += 4)
+            dest[i] = new Matrix2(
+                    p[o    ], p[o + 1],
+                    p[o + 2], p[o + 3]
+            );
+        return dest;
+    }
+
+    private Matrix3[] unpackMatrix3s(){
+        Matrix3[] dest = new Matrix3[dataCount]; float[] p = packedData;
+        for(int i = 0, o = 0; i < dataCount; i++, o += 9)
+            dest[i] = new Matrix3(
+                    p[o    ], p[o + 1], p[o + 2],
+                    p[o + 3], p[o + 4], p[o + 5],
+                    p[o + 6], p[o + 7], p[o + 8]
+            );
+        return dest;
+    }
+
+    private Matrix4[] unpackMatrix4s(){
+        Matrix4[] dest = new Matrix4[dataCount]; float[] p = packedData;
+        for(int i = 0, o = 0; i < dataCount; i++, o += 16)
+            dest[i] = new Matrix4(
+                    p[o     ], p[o +  1], p[o +  2], p[o +  3],
+                    p[o +  4], p[o +  5], p[o +  6], p[o +  7],
+                    p[o +  8], p[o +  9], p[o + 10], p[o + 11],
+                    p[o + 12], p[o + 13], p[o + 14], p[o + 15]
+            );
+        return dest;
+    }
 
     /**To String**/
 
@@ -453,6 +620,8 @@ public class TSArray extends TSBase {
     private String arrayDataAsString(){
         StringBuilder result = new StringBuilder();
 
+        Object[] objects = getStride(dataType) != 0 ? (Object[])getDataObject() : null;
+
         switch(dataType){
             case TSDataType.BYTE:       for (int i = 0; i < dataCount; i++) result.append(byteData[i])      .append(", "); break;
             case TSDataType.SHORT:      for (int i = 0; i < dataCount; i++) result.append(shortData[i])     .append(", "); break;
@@ -463,13 +632,13 @@ public class TSArray extends TSBase {
             case TSDataType.BOOLEAN:    for (int i = 0; i < dataCount; i++) result.append(booleanData[i])   .append(", "); break;
             case TSDataType.CHAR:       for (int i = 0; i < dataCount; i++) result.append(charData[i])      .append(", "); break;
             case TSDataType.STRING:     for (int i = 0; i < dataCount; i++) result.append(stringData[i])    .append(", "); break;
-            case TSDataType.VECTOR2:    for (int i = 0; i < dataCount; i++) result.append(vector2Data[i])   .append(", "); break;
-            case TSDataType.VECTOR3:    for (int i = 0; i < dataCount; i++) result.append(vector3Data[i])   .append(", "); break;
-            case TSDataType.VECTOR4:    for (int i = 0; i < dataCount; i++) result.append(vector4Data[i])   .append(", "); break;
-            case TSDataType.QUATERNION: for (int i = 0; i < dataCount; i++) result.append(quaternionData[i]).append(", "); break;
-            case TSDataType.MATRIX2:    for (int i = 0; i < dataCount; i++) result.append(matrix2Data[i])   .append(", "); break;
-            case TSDataType.MATRIX3:    for (int i = 0; i < dataCount; i++) result.append(matrix3Data[i])   .append(", "); break;
-            case TSDataType.MATRIX4:    for (int i = 0; i < dataCount; i++) result.append(matrix4Data[i])   .append(", "); break;
+            case TSDataType.VECTOR2:    for (int i = 0; i < dataCount; i++) result.append(objects[i])       .append(", "); break;
+            case TSDataType.VECTOR3:    for (int i = 0; i < dataCount; i++) result.append(objects[i])       .append(", "); break;
+            case TSDataType.VECTOR4:    for (int i = 0; i < dataCount; i++) result.append(objects[i])       .append(", "); break;
+            case TSDataType.QUATERNION: for (int i = 0; i < dataCount; i++) result.append(objects[i])       .append(", "); break;
+            case TSDataType.MATRIX2:    for (int i = 0; i < dataCount; i++) result.append(objects[i])       .append(", "); break;
+            case TSDataType.MATRIX3:    for (int i = 0; i < dataCount; i++) result.append(objects[i])       .append(", "); break;
+            case TSDataType.MATRIX4:    for (int i = 0; i < dataCount; i++) result.append(objects[i])       .append(", "); break;
         }
 
         return result.toString();
@@ -1,23 +1,74 @@
 package utils.serialisation.dataObjects;
 
+import utils.files.readers.TSReader;
 import utils.serialisation.types.TSDataType;
 
+import java.nio.ByteBuffer;
+
 public abstract class TSBase {
     protected short  nameLength;        //Length of name array in bytes
     protected byte[] name;              //Name of TS item stored as byte array
+    protected String nameString;        //Name as a String, created on first use or shared from a TSNames table
 
     protected int    size = (    //Size of TS item in bytes
                                 TSDataType.getSize(TSDataType.BYTE)  +     //CONTAINER_TYPE
                                 TSDataType.getSize(TSDataType.SHORT) +     //nameLength
                                 TSDataType.getSize(TSDataType.INTEGER)     //size
                             );
+    protected int    encodedSize;       //Size of TS item in the data it was read from, smaller than size if its name came from a TSNames table
+
+    /**
+     * Read the item's name, stored inline or as an index into the database's name table, and the size following it
+     * @param data raw data
+     * @param pointer position of the name
+     * @param names name table of the database, null if names are stored inline
+     * @return pointer after the size
+     */
+    protected int readHeader(ByteBuffer data, int pointer, TSNames names){
+        int start = pointer;
+
+        if(names == null){
+            nameLength = TSReader.readShort(data, pointer);
+            pointer += TSDataType.getSize(TSDataType.SHORT);
+            name = TSReader.readBytes(data, pointer, nameLength);
+            pointer += nameLength;
+        }else{
+            int index = TSReader.readVarInt(data, pointer);
+            name       = names.getNameData(index);
+            nameLength = (short)name.length;
+            nameString = names.getName(index);
+            pointer += TSNames.getVarIntSize(index);
+        }
+
+        //Size is kept as if the name was inline, so it doesn't depend on the format the item was read from
+        encodedSize = TSReader.readInt(data, pointer);
+        size        = encodedSize + TSDataType.getSize(TSDataType.SHORT) + nameLength - (pointer - start);
+        return pointer + TSDataType.getSize(TSDataType.INTEGER);
+    }
+
+    /**
+     * Read an item's size without deserialising it
+     * @param data raw data
+     * @param pointer position of the item's CONTAINER_TYPE
+     * @param names name table of the database, null if names are stored inline
+     * @return Size of the item in the data
+     */
+    protected static int readEncodedSize(ByteBuffer data, int pointer, TSNames names){
+        pointer += TSDataType.getSize(TSDataType.BYTE);
+        if(names == null) pointer += TSDataType.getSize(TSDataType.SHORT) + TSReader.readShort(data, pointer);
+        else              pointer += TSNames.getVarIntSize(TSReader.readVarInt(data, pointer));
+        return TSReader.readInt(data, pointer);
+    }
 
     /**Getters**/
 
     public short getNameLength(){ return nameLength; }
-    public String getName(){ return new String(name, 0, nameLength); }
     public byte[] getNameData(){ return name; }
 
+    public String getName(){
+        if(nameString == null) nameString = new String(name, 0, nameLength);
+        return nameString;
+    }
 
     public int getSize(){ return size; }
 
@@ -26,6 +77,7 @@ public abstract class TSBase {
     protected void setName(String name){
         this.nameLength = (short)name.length();
         this.name       = name.getBytes();
+        this.nameString = name;
         this.size      += this.nameLength;
     }
 }
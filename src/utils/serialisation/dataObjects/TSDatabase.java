@@ -5,10 +5,16 @@ import utils.files.readers.TSReader;
 import utils.files.writers.TSWriter;
 import utils.logging.LogLevel;
 import utils.logging.Logger;
+import utils.serialisation.compression.TSBlocks;
 import utils.serialisation.types.TSContainerType;
 import utils.serialisation.types.TSDataType;
 
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 public class TSDatabase extends TSBase {
     public static final byte CONTAINER_TYPE = TSContainerType.DATABASE;
@@ -16,14 +22,16 @@ public class TSDatabase extends TSBase {
     private byte[] header  = TSWriter.HEADER;    //Current header prefix (shouldn't change)
     private short  version = TSWriter.VERSION;   //Current version of ThunderStorm for legacy support (can change)
 
-    private short objectCount;          //Amount of items in "objects" map stored as a short
+    public static final int MAX_INLINE_OBJECTS = Short.MAX_VALUE;  //Most objects a version 1.4 or older database can count
+
+    private int objectCount;            //Amount of items in "objects" map, stored as an int from version 1.5 (a short before)
 //    private final Map<String, TSObject> objects = new HashMap<>();
     private final List<TSObject> objects = new ArrayList<>();
 
     private TSDatabase(){
         size += header.length                          +    //HEADER
                 TSDataType.getSize(TSDataType.SHORT)   +    //VERSION
-                TSDataType.getSize(TSDataType.SHORT);       //objectCount
+                TSDataType.getSize(TSDataType.INTEGER);     //objectCount
     }
 
     /**
@@ -42,18 +50,57 @@ public class TSDatabase extends TSBase {
      * @param data raw byte array data
      * @return a new TSDatabase
      */
-    public static TSDatabase deserialise(byte[] data) {
+    public static TSDatabase deserialise(byte[] data){ return deserialise(ByteBuffer.wrap(data)); }
+
+    /**
+     * Load a new TSDatabase from raw byte data
+     * @param data raw data, either wrapping a byte array or mapped from a file
+     * @return a new TSDatabase
+     */
+    public static TSDatabase deserialise(ByteBuffer data){ return deserialise(data, false); }
+
+    /**
+     * Load a new TSDatabase from raw byte data
+     * Lazy databases only read the name and size of each object, see {@link TSObject#deserialise(ByteBuffer, int, boolean)}
+     * @param data raw data, either wrapping a byte array or mapped from a file, compressed files are decompressed first
+     * @param lazy True to decode objects the first time they're accessed
+     * @return a new TSDatabase
+     */
+    public static TSDatabase deserialise(ByteBuffer data, boolean lazy){ return deserialise(data, lazy, null); }
+
+    /**
+     * Load a new TSDatabase from raw byte data, decoding its objects in parallel
+     * @param data raw data, either wrapping a byte array or mapped from a file
+     * @param pool pool to decode objects on
+     * @return a new TSDatabase
+     */
+    public static TSDatabase deserialise(ByteBuffer data, ForkJoinPool pool){ return deserialise(data, false, pool); }
+
+    /**
+     * Load a new TSDatabase from raw byte data
+     * With a pool the offset of every object is found from the size headers first, then the objects are decoded
+     * concurrently, getObjects() keeps the order they were written in
+     * @param data raw data, either wrapping a byte array or mapped from a file, compressed files are decompressed first
+     * @param lazy True to decode objects the first time they're accessed
+     * @param pool pool to decode objects on, null to decode them on the calling thread
+     * @return a new TSDatabase
+     */
+    public static TSDatabase deserialise(ByteBuffer data, boolean lazy, ForkJoinPool pool) {
+        //Compressed files are decompressed in parallel first, see TSBlocks
+        data = TSBlocks.decompress(data, pool != null ? pool : ForkJoinPool.commonPool());
+        if(data == null) return null;
+
         int pointer = 0;
 
         //Get Header and Version of database
         //Header should reveal file is supposed to resemble a ThunderStorm Database
         //Future iterations should decide what to do based on the version of the Database
         byte[] header = TSReader.readBytes(data, pointer, TSWriter.HEADER.length);
-        if(!Maths.checkEqual(header, header)){
+        if(!Maths.checkEqual(header, TSWriter.HEADER)){
             Logger.log(LogLevel.ERROR, TSDatabase.class.getSimpleName(),
                             "Data may be corrupt, expected database header doesn't match\n" +
                             "Read header        - " + Arrays.toString(header) + "\n" +
-                            "Expected header    - " + Arrays.toString(header)
+                            "Expected header    - " + Arrays.toString(TSWriter.HEADER)
                         );
             return null;
         }
@@ -94,26 +141,88 @@ public class TSDatabase extends TSBase {
         database.size = TSReader.readInt(data, pointer);
         pointer += TSDataType.getSize(TSDataType.INTEGER);
 
-        //Get how many objects are in the database
-        database.objectCount = TSReader.readShort(data, pointer);
-        pointer += TSDataType.getSize(TSDataType.SHORT);
+        //From version 1.5 object, field and array names are stored once in a table after the size
+        //The size is measured once the objects are decoded, as if every name was stored inline
+        TSNames names = null;
+        if(version >= TSNames.VERSION){
+            names = TSNames.read(data, pointer);
+            pointer += names.getSize();
+            database.size = -1;
+        }
+
+        //Get how many objects are in the database, version 1.4 and older count them in a short
+        if(version >= TSNames.VERSION){
+            database.objectCount = TSReader.readInt(data, pointer);
+            pointer += TSDataType.getSize(TSDataType.INTEGER);
+        }else{
+            database.objectCount = TSReader.readShort(data, pointer);
+            pointer += TSDataType.getSize(TSDataType.SHORT);
+        }
 
         //Deserialise the objects stored within the raw data
-        for(int i = 0; i < database.objectCount; i++){
-            TSObject obj = TSObject.deserialise(data, pointer);
-            database.objects.add(obj);
-            pointer += obj.getSize();
+        if(pool != null && database.objectCount > 1){
+            if(!database.decode(data, pointer, lazy, names, pool)) return null;
+        }else{
+            for(int i = 0; i < database.objectCount; i++){
+                TSObject obj = TSObject.deserialise(data, pointer, lazy, names);
+                database.objects.add(obj);
+                pointer += obj.encodedSize;
+            }
         }
 
         //Return the completed database
         return database;
     }
 
+    /**
+     * Decode the database's objects concurrently
+     * @param data raw data
+     * @param pointer position of the first object
+     * @param lazy True to decode objects the first time they're accessed
+     * @param names name table of the database, null if names are stored inline
+     * @param pool pool to decode objects on
+     * @return False if an object couldn't be decoded
+     */
+    private boolean decode(ByteBuffer data, int pointer, boolean lazy, TSNames names, ForkJoinPool pool){
+        //Size headers are enough to find every object without decoding any of them
+        int[] offsets = new int[objectCount];
+        for(int i = 0; i < objectCount; i++){
+            offsets[i] = pointer;
+            pointer += readEncodedSize(data, pointer, names);
+        }
+
+        //One task per range of objects, a few per worker so uneven objects still balance out
+        TSObject[] decoded = new TSObject[objectCount];
+        int tasks = Math.min(decoded.length, pool.getParallelism() * 4);
+        List<Callable<Void>> ranges = new ArrayList<>(tasks);
+        for(int t = 0; t < tasks; t++){
+            int from = (int)((long)decoded.length *  t      / tasks);
+            int to   = (int)((long)decoded.length * (t + 1) / tasks);
+            ranges.add(() -> {
+                for(int i = from; i < to; i++) decoded[i] = TSObject.deserialise(data, offsets[i], lazy, names);
+                return null;
+            });
+        }
+
+        try{
+            for(Future<Void> range : pool.invokeAll(ranges)) range.get();
+        }catch(InterruptedException | ExecutionException error){
+            Logger.log(LogLevel.ERROR, TSDatabase.class.getSimpleName(), error);
+            return false;
+        }
+
+        for(TSObject object : decoded){
+            if(object == null) return false;
+            objects.add(object);
+        }
+        return true;
+    }
+
     /**
      * Add a TSObject into the local TSObject array
      * @param object TSObject to add
      */
-    public void add(TSObject object){ this.objects.add(object); this.objectCount = (short)this.objects.size(); this.size += object.getSize(); }
+    public void add(TSObject object){ this.objects.add(object); this.objectCount = this.objects.size(); if(this.size >= 0) this.size += object.getSize(); }
 //
 //    /**
 //     * Find a specified TSObject from the Mapped TSObject list
@@ -127,10 +236,31 @@ public class TSDatabase extends TSBase {
 
     /**Getters**/
 
+    /**
+     * Databases read with a name table measure their size the first time it's asked for, decoding every object
+     * @return Size of the database in bytes in the current version, as if every name was stored inline
+     */
+    @Override
+    public int getSize(){
+        int size = this.size;
+        if(size >= 0) return size;
+
+        size = TSDataType.getSize(TSDataType.BYTE)    +     //CONTAINER_TYPE
+               TSDataType.getSize(TSDataType.SHORT)   +     //nameLength
+               nameLength                             +     //name
+               TSDataType.getSize(TSDataType.INTEGER) +     //size
+               header.length                          +     //HEADER
+               TSDataType.getSize(TSDataType.SHORT)   +     //VERSION
+               TSDataType.getSize(TSDataType.INTEGER);      //objectCount
+
+        for(TSObject object : objects) size += object.getSize();
+        return this.size = size;
+    }
+
     public byte[] getHeader(){ return header; }
     public short getVersion(){ return version; }
 
-    public short getObjectCount(){ return objectCount; }
+    public int getObjectCount(){ return objectCount; }
 //    public Map<String, TSObject> getObjects (){ return objects; }
     public List<TSObject> getObjects(){ return objects; }
 
@@ -143,7 +273,7 @@ public class TSDatabase extends TSBase {
                     .append("Name: ").append(getName()).append("\n")
                     .append("Header: ").append(new String(getHeader())).append("\n")
                     .append("Version: ").append((getVersion() >> 8 & 0xff)).append(".").append((getVersion() & 0xff)).append("\n")
-                    .append("Size (in bytes): ").append(size).append("\n")
+                    .append("Size (in bytes): ").append(getSize()).append("\n")
                     .append("Object count: ").append(objectCount).append("\n").append("\n");
 
         for(TSObject object : objects)
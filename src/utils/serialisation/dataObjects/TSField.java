@@ -14,6 +14,8 @@ import utils.maths.matrices.Matrix4;
 import utils.serialisation.types.TSContainerType;
 import utils.serialisation.types.TSDataType;
 
+import java.nio.ByteBuffer;
+
 public class TSField extends TSBase {
     public static final byte CONTAINER_TYPE = TSContainerType.FIELD;
 
@@ -286,7 +288,24 @@ public class TSField extends TSBase {
      * @param pointer current pointer position in byte array
      * @return a new TSField
      */
-    public static TSField deserialise(byte[] data, int pointer){
+    public static TSField deserialise(byte[] data, int pointer){ return deserialise(ByteBuffer.wrap(data), pointer); }
+
+    /**
+     * Load a new TSField from raw byte data
+     * @param data raw data, either wrapping a byte array or mapped from a file
+     * @param pointer current pointer position in byte array
+     * @return a new TSField
+     */
+    public static TSField deserialise(ByteBuffer data, int pointer){ return deserialise(data, pointer, null); }
+
+    /**
+     * Load a new TSField from raw byte data
+     * @param data raw data, either wrapping a byte array or mapped from a file
+     * @param pointer current pointer position in byte array
+     * @param names name table of the database, null if names are stored inline
+     * @return a new TSField
+     */
+    public static TSField deserialise(ByteBuffer data, int pointer, TSNames names){
         //Store the pointer to a local variable
         //Used for reading data - Strings have an undetermined length of bytes
         //                        Logical to me to store them as fields because they're used as fields within Java
@@ -310,15 +329,8 @@ public class TSField extends TSBase {
         //Create return field
         TSField field = new TSField();
 
-        //Get the name length and then the name of the field
-        field.nameLength = TSReader.readShort(data, pointer);
-        pointer += TSDataType.getSize(TSDataType.SHORT);
-        field.name = TSReader.readString(data, pointer, field.nameLength).getBytes();
-        pointer += field.nameLength;
-
-        //Get the size (in bytes) of the field
-        field.size = TSReader.readInt(data, pointer);
-        pointer += TSDataType.getSize(TSDataType.INTEGER);
+        //Get the name and then the size (in bytes) of the field
+        pointer = field.readHeader(data, pointer, names);
 
         //Get what data type the field is (Byte, Short, Int, etc...)
         field.dataType = TSReader.readByte(data, pointer);
@@ -326,8 +338,8 @@ public class TSField extends TSBase {
 
         //Get the field data stored within the raw data
         //This is where inPointer comes in,
-        //field.getSize() - (pointer - inPointer) should get remaining length of this field's data
-        field.data = TSReader.readBytes(data, pointer, field.getSize() - (pointer - inPointer));
+        //field.encodedSize - (pointer - inPointer) should get remaining length of this field's data
+        field.data = TSReader.readBytes(data, pointer, field.encodedSize - (pointer - inPointer));
         pointer += field.data.length;
 
         //Return the completed field
@@ -0,0 +1,202 @@
+package utils.serialisation.dataObjects;
+
+import utils.Maths;
+import utils.files.readers.TSReader;
+import utils.files.writers.TSWriter;
+import utils.serialisation.compression.TSBlocks;
+import utils.serialisation.types.TSContainerType;
+import utils.serialisation.types.TSDataType;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Table of contents written after a database's objects, from version 1.4 onwards
+ * Holds the offset of every top level object and the value of its "ID" field, so single objects can be read
+ * straight out of a file without deserialising the whole database
+ *
+ * Compressed files keep the index inside the compressed stream, it's found through the database's size field so only
+ * the blocks covering the database header, the index and each object read are decompressed, see TSBlocks
+ *
+ * Layout - [CONTAINER_TYPE][int count][int offset * count][long ID * count], starting at the database's size
+ */
+public class TSIndex {
+    public static final byte  CONTAINER_TYPE = TSContainerType.INDEX;
+    public static final short VERSION        = 0x0104;  //First database version that can hold an index
+    public static final long  NO_ID          = -1;      //ID of objects without a long "ID" field
+
+    private final ByteBuffer data;      //Uncompressed database, null if objects are read out of blocks
+    private final TSBlocks   blocks;    //Blocks of a compressed database, null if the database isn't compressed
+    private final int        end;       //End of the last object, the database's size
+    private final TSNames    names;     //Name table of the database, null if names are stored inline
+    private final int[]      offsets;   //Offset of each top level object from the start of the database
+    private final long[]     ids;       //"ID" field of each top level object
+
+    private Map<Long, Integer> positions;   //ID -> position in offsets, built on first lookup
+
+    private TSIndex(ByteBuffer data, TSBlocks blocks, int end, TSNames names, int[] offsets, long[] ids){
+        this.data    = data;
+        this.blocks  = blocks;
+        this.end     = end;
+        this.names   = names;
+        this.offsets = offsets;
+        this.ids     = ids;
+    }
+
+    /**
+     * Read the index of a serialised database
+     * @param data raw database data, either wrapping a byte array or mapped from a file, compressed data is read
+     *             through its blocks without decompressing the whole database
+     * @return index of the database, null if it was written without one
+     */
+    public static TSIndex read(ByteBuffer data){
+        if(TSBlocks.isCompressed(data)){
+            TSBlocks blocks = TSBlocks.read(data);
+            return blocks != null ? read(blocks) : null;
+        }
+
+        if(!Maths.checkEqual(TSReader.readBytes(data, 0, TSWriter.HEADER.length), TSWriter.HEADER)) return null;
+        int pointer = TSWriter.HEADER.length;
+
+        short version = TSReader.readShort(data, pointer);
+        if(version < VERSION) return null;
+        pointer += TSDataType.getSize(TSDataType.SHORT) + TSDataType.getSize(TSDataType.BYTE);
+
+        //Skip the database name to find its size, the index starts right after the database
+        pointer += TSDataType.getSize(TSDataType.SHORT) + TSReader.readShort(data, pointer);
+        int table = pointer + TSDataType.getSize(TSDataType.INTEGER);
+        int end   = TSReader.readInt(data, pointer);
+        pointer   = end;
+
+        if(pointer + TSDataType.getSize(TSDataType.BYTE) > data.limit()) return null;
+        if(TSReader.readByte(data, pointer) != CONTAINER_TYPE) return null;
+        pointer += TSDataType.getSize(TSDataType.BYTE);
+
+        int count = TSReader.readInt(data, pointer);
+        pointer += TSDataType.getSize(TSDataType.INTEGER);
+
+        int[] offsets = TSReader.readInts(data, pointer, count);
+        pointer += count * TSDataType.getSize(TSDataType.INTEGER);
+
+        long[] ids = TSReader.readLongs(data, pointer, count);
+
+        //Objects need the database's name table to be read on their own
+        TSNames names = version >= TSNames.VERSION ? TSNames.read(data, table) : null;
+
+        return new TSIndex(data, null, end, names, offsets, ids);
+    }
+
+    /**
+     * Read the index of a compressed database, only decompressing the blocks covering its header, name table and index
+     * @param blocks block table of the compressed file
+     * @return index of the database, null if it was written without one or a block is corrupt
+     */
+    public static TSIndex read(TSBlocks blocks){
+        //Header, version, container type and name length
+        int pointer = TSWriter.HEADER.length;
+        ByteBuffer header = range(blocks, 0, pointer + TSDataType.getSize(TSDataType.SHORT) * 2 + TSDataType.getSize(TSDataType.BYTE));
+        if(header == null || !Maths.checkEqual(TSReader.readBytes(header, 0, pointer), TSWriter.HEADER)) return null;
+
+        short version = TSReader.readShort(header, pointer);
+        if(version < VERSION) return null;
+        pointer += TSDataType.getSize(TSDataType.SHORT) + TSDataType.getSize(TSDataType.BYTE);
+
+        //Skip the database name to find its size, the index starts right after the database
+        pointer += TSDataType.getSize(TSDataType.SHORT) + TSReader.readShort(header, pointer);
+        ByteBuffer size = range(blocks, pointer, TSDataType.getSize(TSDataType.INTEGER));
+        if(size == null) return null;
+        int table = pointer + TSDataType.getSize(TSDataType.INTEGER);
+        int end   = TSReader.readInt(size, 0);
+
+        ByteBuffer index = end < blocks.getSize() ? range(blocks, end, (int)(blocks.getSize() - end)) : null;
+        if(index == null || TSReader.readByte(index, 0) != CONTAINER_TYPE) return null;
+        pointer = TSDataType.getSize(TSDataType.BYTE);
+
+        int count = TSReader.readInt(index, pointer);
+        pointer += TSDataType.getSize(TSDataType.INTEGER);
+
+        int[] offsets = TSReader.readInts(index, pointer, count);
+        pointer += count * TSDataType.getSize(TSDataType.INTEGER);
+
+        long[] ids = TSReader.readLongs(index, pointer, count);
+
+        //Name table fills the space between the size and the object count in front of the first object
+        TSNames names = null;
+        if(version >= TSNames.VERSION){
+            int first = count > 0 ? offsets[0] : end;
+            ByteBuffer data = range(blocks, table, first - TSDataType.getSize(TSDataType.INTEGER) - table);
+            if(data == null) return null;
+            names = TSNames.read(data, 0);
+        }
+
+        return new TSIndex(null, blocks, end, names, offsets, ids);
+    }
+
+    /**
+     * @return Decompressed range of a compressed database, null if it's corrupt
+     */
+    private static ByteBuffer range(TSBlocks blocks, long offset, int length){
+        byte[] range = blocks.decompress(offset, length);
+        return range != null ? ByteBuffer.wrap(range) : null;
+    }
+
+    /**
+     * @param object top level object
+     * @return Value of the object's long "ID" field, NO_ID if it doesn't have one
+     */
+    public static long getID(TSObject object){
+        TSField id = object.findField("ID");
+        if(id == null || id.getDataType() != TSDataType.LONG) return NO_ID;
+        return TSReader.readLong(id.getData(), 0);
+    }
+
+    /**
+     * @param id value of an object's "ID" field
+     * @return Position of the object within the database, -1 if no object has the ID
+     */
+    public synchronized int find(long id){
+        if(positions == null){
+            positions = new HashMap<>(ids.length * 2);
+            for(int i = 0; i < ids.length; i++)
+                if(ids[i] != NO_ID) positions.putIfAbsent(ids[i], i);
+        }
+
+        Integer position = positions.get(id);
+        return position != null ? position : -1;
+    }
+
+    /**
+     * Deserialise a single object by ID
+     * @param id value of the object's "ID" field
+     * @param lazy True to decode the object's children on first access
+     * @return object, null if no object has the ID
+     */
+    public TSObject findObject(long id, boolean lazy){
+        int position = find(id);
+        return position != -1 ? getObject(position, lazy) : null;
+    }
+
+    /**
+     * Deserialise a single object by its position in the database
+     * @param position position of the object
+     * @param lazy True to decode the object's children on first access
+     * @return object, null if it's in a corrupt block
+     */
+    public TSObject getObject(int position, boolean lazy){
+        if(blocks == null) return TSObject.deserialise(data, offsets[position], lazy, names);
+
+        //Objects are stored back to back, so the next object's offset is where this one ends
+        int from = offsets[position];
+        int to   = position + 1 < offsets.length ? offsets[position + 1] : end;
+        ByteBuffer object = range(blocks, from, to - from);
+        return object != null ? TSObject.deserialise(object, 0, lazy, names) : null;
+    }
+
+    /**Getters**/
+
+    public int  getCount()            { return offsets.length;     }
+    public int  getOffset(int position){ return offsets[position]; }
+    public long getID(int position)   { return ids[position];      }
+    public TSNames getNames()         { return names;              }
+}
@@ -0,0 +1,66 @@
+package utils.serialisation.dataObjects;
+
+import utils.files.readers.TSReader;
+import utils.serialisation.types.TSDataType;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Table of every name used in a database, from version 1.5 onwards
+ * Objects, fields and arrays refer to their name by a varint index into the table instead of storing it inline,
+ * names are interned when the table is read so every item with the same name shares a single String
+ *
+ * Layout - [int count][[short nameLength][name] * count], straight after the database's size
+ */
+public class TSNames {
+    public static final short VERSION = 0x0105;     //First database version that stores names in a table
+
+    private final String[] names;
+    private final byte[][] data;
+    private final int      size;    //Size of the table in bytes
+
+    private TSNames(String[] names, byte[][] data, int size){
+        this.names = names;
+        this.data  = data;
+        this.size  = size;
+    }
+
+    /**
+     * Read a database's name table
+     * @param data raw database data
+     * @param pointer position of the table
+     * @return name table
+     */
+    public static TSNames read(ByteBuffer data, int pointer){
+        int start = pointer;
+
+        int count = TSReader.readInt(data, pointer);
+        pointer += TSDataType.getSize(TSDataType.INTEGER);
+
+        String[] names = new String[count];
+        byte[][] bytes = new byte[count][];
+        for(int i = 0; i < count; i++){
+            short length = TSReader.readShort(data, pointer);
+            pointer += TSDataType.getSize(TSDataType.SHORT);
+
+            bytes[i] = TSReader.readBytes(data, pointer, length);
+            names[i] = new String(bytes[i]).intern();
+            pointer += length;
+        }
+
+        return new TSNames(names, bytes, pointer - start);
+    }
+
+    /**
+     * @param value unsigned int value
+     * @return Amount of bytes the value takes up as a varint
+     */
+    public static int getVarIntSize(int value){ return value == 0 ? 1 : (38 - Integer.numberOfLeadingZeros(value)) / 7; }
+
+    /**Getters**/
+
+    public String getName(int index){ return names[index]; }
+    public byte[] getNameData(int index){ return data[index]; }
+    public int getCount(){ return names.length; }
+    public int getSize(){ return size; }
+}
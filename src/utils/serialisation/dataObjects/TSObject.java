@@ -6,6 +6,7 @@ import utils.logging.Logger;
 import utils.serialisation.types.TSContainerType;
 import utils.serialisation.types.TSDataType;
 
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,6 +22,11 @@ public class TSObject extends TSBase {
     private final Map<String, TSField> fields = new HashMap<>();
     private final Map<String, TSArray> arrays = new HashMap<>();
 
+    /**Lazy decoding**/
+    private volatile ByteBuffer source; //Data the children are still waiting to be decoded from, null once decoded
+    private int                 offset; //Position of the children (objectCount) within source
+    private TSNames             names;  //Name table the children are decoded with, null if names are stored inline
+
     private TSObject(){
         size += TSDataType.getSize(TSDataType.SHORT) + //objectCount
                 TSDataType.getSize(TSDataType.SHORT) + //fieldCount
@@ -44,7 +50,36 @@ public class TSObject extends TSBase {
      * @param pointer current pointer position in byte array
      * @return a new TSObject
      */
-    public static TSObject deserialise(byte[] data, int pointer){
+    public static TSObject deserialise(byte[] data, int pointer){ return deserialise(ByteBuffer.wrap(data), pointer); }
+
+    /**
+     * Load a new TSObject from raw byte data
+     * @param data raw data, either wrapping a byte array or mapped from a file
+     * @param pointer current pointer position in byte array
+     * @return a new TSObject
+     */
+    public static TSObject deserialise(ByteBuffer data, int pointer){ return deserialise(data, pointer, false); }
+
+    /**
+     * Load a new TSObject from raw byte data
+     * A lazy object only reads its name and size, its children are decoded the first time they're accessed
+     * and child objects are lazy themselves, the data has to stay unchanged until then
+     * @param data raw data, either wrapping a byte array or mapped from a file
+     * @param pointer current pointer position in byte array
+     * @param lazy True to defer decoding the object's children
+     * @return a new TSObject
+     */
+    public static TSObject deserialise(ByteBuffer data, int pointer, boolean lazy){ return deserialise(data, pointer, lazy, null); }
+
+    /**
+     * Load a new TSObject from raw byte data
+     * @param data raw data, either wrapping a byte array or mapped from a file
+     * @param pointer current pointer position in byte array
+     * @param lazy True to defer decoding the object's children
+     * @param names name table of the database, null if names are stored inline
+     * @return a new TSObject
+     */
+    public static TSObject deserialise(ByteBuffer data, int pointer, boolean lazy, TSNames names){
         //Get the container type
         //This should confirm we are trying to deserialise the correct object
         //Future iterations could probably do better error checking with this
@@ -64,48 +99,78 @@ public class TSObject extends TSBase {
         //Create return object
         TSObject object = new TSObject();
 
-        //Get the name length and then the name of the object
-        object.nameLength = TSReader.readShort(data, pointer);
-        pointer += TSDataType.getSize(TSDataType.SHORT);
-        object.name = TSReader.readString(data, pointer, object.nameLength).getBytes();
-        pointer += object.nameLength;
+        //Get the name and then the size (in bytes) of the object
+        pointer = object.readHeader(data, pointer, names);
+
+        //Children's names are shorter than inline names too, the size is measured once they're decoded
+        if(names != null) object.size = -1;
 
-        //Get the size (in bytes) of the object
-        object.size = TSReader.readInt(data, pointer);
-        pointer += TSDataType.getSize(TSDataType.INTEGER);
+        //Lazy objects stop here and remember where their children start
+        if(lazy){
+            object.offset = pointer;
+            object.names  = names;
+            object.source = data;
+            return object;
+        }
+
+        object.decode(data, pointer, false, names);
 
+        //Return the completed object
+        return object;
+    }
+
+    /**
+     * Decode the children of a lazy object, safe to call from several threads
+     */
+    private void decode(){
+        if(source == null) return;
+
+        synchronized(this){
+            if(source == null) return;
+
+            decode(source, offset, true, names);
+            names  = null;
+            source = null;
+        }
+    }
+
+    /**
+     * Decode child objects, fields and arrays
+     * @param data raw data
+     * @param pointer position of objectCount
+     * @param lazy True to leave child objects lazy
+     * @param names name table of the database, null if names are stored inline
+     */
+    private void decode(ByteBuffer data, int pointer, boolean lazy, TSNames names){
         //Get how many objects are in the object
-        object.objectCount = TSReader.readShort(data, pointer);
+        objectCount = TSReader.readShort(data, pointer);
         pointer += TSDataType.getSize(TSDataType.SHORT);
         //Deserialise the child objects stored within the raw data
-        for(int i = 0; i < object.objectCount; i++) {
-            TSObject child = TSObject.deserialise(data, pointer);
-            object.objects.put(child.getName(), child);
-            pointer += child.getSize();
+        for(int i = 0; i < objectCount; i++) {
+            TSObject child = TSObject.deserialise(data, pointer, lazy, names);
+            objects.put(child.getName(), child);
+            pointer += child.encodedSize;
         }
 
         //Get how many fields are in the object
-        object.fieldCount = TSReader.readShort(data, pointer);
+        fieldCount = TSReader.readShort(data, pointer);
         pointer += TSDataType.getSize(TSDataType.SHORT);
         //Deserialise the fields stored within the raw data
-        for(int i = 0; i < object.fieldCount; i++) {
-            TSField field = TSField.deserialise(data, pointer);
-            object.fields.put(field.getName(), field);
-            pointer += field.getSize();
+        for(int i = 0; i < fieldCount; i++) {
+            TSField field = TSField.deserialise(data, pointer, names);
+            fields.put(field.getName(), field);
+            pointer += field.encodedSize;
         }
 
         //Get how many arrays are in the object
-        object.arrayCount = TSReader.readShort(data, pointer);
+        arrayCount = TSReader.readShort(data, pointer);
         pointer += TSDataType.getSize(TSDataType.SHORT);
         //Deserialise the arrays stored within the raw data
-        for(int i = 0; i < object.arrayCount; i++) {
-            TSArray array = TSArray.deserialise(data, pointer);
-            object.arrays.put(array.getName(), array);
-            pointer += array.getSize();
+        for(int i = 0; i < arrayCount; i++) {
+            TSArray array = TSArray.deserialise(data, pointer, names);
+            arrays.put(array.getName(), array);
+            pointer += array.encodedSize;
         }
-
-        //Return the completed object
-        return object;
     }
 
     /**
@@ -121,34 +186,33 @@ public class TSObject extends TSBase {
      * @param object TSBase to add
      */
     public void add(TSBase   object){
-        switch(object.getClass().getSimpleName()){
-            case "TSObject": add((TSObject)object); break;
-            case "TSField":  add((TSField) object); break;
-            case "TSArray":  add((TSArray) object); break;
-        }
+        if     (object instanceof TSObject) add((TSObject)object);
+        else if(object instanceof TSField)  add((TSField) object);
+        else if(object instanceof TSArray)  add((TSArray) object);
     }
 
     /**
      * Add a TSObject into the local TSObject array
      * @param object TSObject to add
      */
-    public void add(TSObject object){ this.objects.put(object.getName(), object); this.objectCount = (short)this.objects.size(); this.size += object.size; }
+    public void add(TSObject object){ decode(); this.objects.put(object.getName(), object); this.objectCount = (short)this.objects.size(); if(this.size >= 0) this.size += object.getSize(); }
     /**
      * Add a TSField into the local TSField array
      * @param field TSField to add
      */
-    public void add(TSField  field){ this.fields .put(field.getName(), field ); this.fieldCount  = (short)this.fields .size(); this.size += field .size; }
+    public void add(TSField  field){ decode(); this.fields .put(field.getName(), field ); this.fieldCount  = (short)this.fields .size(); if(this.size >= 0) this.size += field .getSize(); }
     /**
      * Add a TSArray into the local TSArray array
      * @param array TSArray to add
      */
-    public void add(TSArray  array){ this.arrays .put(array.getName(), array ); this.arrayCount  = (short)this.arrays .size(); this.size += array .size; }
+    public void add(TSArray  array){ decode(); this.arrays .put(array.getName(), array ); this.arrayCount  = (short)this.arrays .size(); if(this.size >= 0) this.size += array .getSize(); }
 
     /**
      * Find a specified TSObject from the Mapped TSObject list
      * @param name name of TSObject
      */
     public TSObject findObject(String name){
+        decode();
         if(objects.containsKey(name)) return objects.get(name);
         return null;
     }
@@ -158,6 +222,7 @@ public class TSObject extends TSBase {
      * @param name name of TSField
      */
     public TSField findField(String name){
+        decode();
         if(fields.containsKey(name)) return fields.get(name);
         return null;
     }
@@ -167,28 +232,57 @@ public class TSObject extends TSBase {
      * @param name name of TSArray
      */
     public TSArray findArray(String name){
+        decode();
         if(arrays.containsKey(name)) return arrays.get(name);
         return null;
     }
 
     /**Getters**/
 
-    public short getObjectCount(){ return objectCount; }
-    public short getFieldCount() { return fieldCount;  }
-    public short getArrayCount() { return arrayCount;  }
+    /**
+     * Objects read with a name table measure their size the first time it's asked for, decoding their children
+     * @return Size of the object in bytes, as if every name was stored inline
+     */
+    @Override
+    public int getSize(){
+        int size = this.size;
+        if(size >= 0) return size;
+
+        decode();
+        size = TSDataType.getSize(TSDataType.BYTE)    +     //CONTAINER_TYPE
+               TSDataType.getSize(TSDataType.SHORT)   +     //nameLength
+               nameLength                             +     //name
+               TSDataType.getSize(TSDataType.INTEGER) +     //size
+               TSDataType.getSize(TSDataType.SHORT) * 3;    //objectCount, fieldCount, arrayCount
+
+        for(TSObject object : objects.values()) size += object.getSize();
+        for(TSField  field  : fields .values()) size += field .getSize();
+        for(TSArray  array  : arrays .values()) size += array .getSize();
+        return this.size = size;
+    }
+
+    public short getObjectCount(){ decode(); return objectCount; }
+    public short getFieldCount() { decode(); return fieldCount;  }
+    public short getArrayCount() { decode(); return arrayCount;  }
+
+    public Map<String, TSObject> getObjects(){ decode(); return objects; }
+    public Map<String, TSField>  getFields() { decode(); return fields;  }
+    public Map<String, TSArray>  getArrays() { decode(); return arrays;  }
 
-    public Map<String, TSObject> getObjects(){ return objects; }
-    public Map<String, TSField>  getFields() { return fields;  }
-    public Map<String, TSArray>  getArrays() { return arrays;  }
+    /**
+     * @return True if the object's children haven't been decoded yet
+     */
+    public boolean isLazy(){ return source != null; }
 
     /**To String**/
 
     public String toString(){
+        decode();
         StringBuilder returnString = new StringBuilder();
 
         returnString.append("==OBJECT==").append("\n")
                 .append("Name:                ").append(getName()).append("\n")
-                .append("Size (in bytes):     ").append(size).append("\n")
+                .append("Size (in bytes):     ").append(getSize()).append("\n")
                 .append("Child object count:  ").append(objectCount).append("\n")
                 .append("Field count:         ").append(fieldCount).append("\n")
                 .append("Array count:         ").append(arrayCount).append("\n").append("\n");
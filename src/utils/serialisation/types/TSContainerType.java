@@ -6,4 +6,5 @@ public class TSContainerType {
     public static final byte OBJECT   =  1;
     public static final byte ARRAY    =  2;
     public static final byte FIELD    =  3;
+    public static final byte INDEX    =  4;
 }
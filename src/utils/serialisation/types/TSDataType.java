@@ -1,6 +1,13 @@
 package utils.serialisation.types;
 
 import utils.files.readers.TSReader;
+import utils.maths.matrices.Matrix2;
+import utils.maths.matrices.Matrix3;
+import utils.maths.matrices.Matrix4;
+import utils.maths.matrices.Quaternion;
+import utils.maths.vectors.Vector2;
+import utils.maths.vectors.Vector3;
+import utils.maths.vectors.Vector4;
 
 public class TSDataType {
     public static final byte UNKNOWN = 0;
@@ -48,6 +55,31 @@ public class TSDataType {
         return 0;
     }
 
+    /**
+     * @param type Java class, primitive or boxed
+     * @return The TSDataType values of the class are stored as, UNKNOWN if it can't be stored directly
+     */
+    public static byte of(Class<?> type){
+        if(type == byte.class    || type == Byte.class)      return BYTE;
+        if(type == short.class   || type == Short.class)     return SHORT;
+        if(type == int.class     || type == Integer.class)   return INTEGER;
+        if(type == long.class    || type == Long.class)      return LONG;
+        if(type == float.class   || type == Float.class)     return FLOAT;
+        if(type == double.class  || type == Double.class)    return DOUBLE;
+        if(type == boolean.class || type == Boolean.class)   return BOOLEAN;
+        if(type == char.class    || type == Character.class) return CHAR;
+        if(type == String.class)     return STRING;
+        if(type == Vector2.class)    return VECTOR2;
+        if(type == Vector3.class)    return VECTOR3;
+        if(type == Vector4.class)    return VECTOR4;
+        if(type == Quaternion.class) return QUATERNION;
+        if(type == Matrix2.class)    return MATRIX2;
+        if(type == Matrix3.class)    return MATRIX3;
+        if(type == Matrix4.class)    return MATRIX4;
+
+        return UNKNOWN;
+    }
+
     /**
      * @param type TSDataType
      * @param data Raw byte data